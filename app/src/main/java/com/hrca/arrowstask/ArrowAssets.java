@@ -0,0 +1,94 @@
+package com.hrca.arrowstask;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.util.SparseArray;
+
+/**
+ * Default arrow drawables decoded ahead of time.
+ * {@link #preload(Context)} decodes them on a background thread, so the task screen does not
+ * decode them on the main thread while it is being inflated.
+ * Only the shareable constant states are kept, every view gets its own drawables.
+ */
+class ArrowAssets {
+    /**
+     * Default drawables of the up, down, left and right arrow.
+     */
+    static final int[] DEFAULT_DRAWABLES = {R.drawable.u, R.drawable.d, R.drawable.l, R.drawable.r};
+
+    /**
+     * Constant states of decoded drawables by resource id.
+     */
+    private static final SparseArray<Drawable.ConstantState> states = new SparseArray<Drawable.ConstantState>();
+    /**
+     * Whether preloading was started.
+     */
+    private static boolean preloadStarted;
+
+    private ArrowAssets() {
+    }
+
+    /**
+     * Starts decoding the default arrow drawables in the background. Does nothing if already started.
+     *
+     * @param context Any context of the application.
+     */
+    static synchronized void preload(Context context) {
+        if (preloadStarted)
+            return;
+        preloadStarted = true;
+        final Context application = context.getApplicationContext();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_BACKGROUND);
+                for (int id : DEFAULT_DRAWABLES) {
+                    Drawable drawable = decode(application.getResources(), id, null);
+                    if (drawable != null && drawable.getConstantState() != null) {
+                        synchronized (ArrowAssets.class) {
+                            states.put(id, drawable.getConstantState());
+                        }
+                    }
+                }
+            }
+        }, "ArrowAssets");
+        thread.start();
+    }
+
+    /**
+     * Gets a drawable, decoding it only if it was not preloaded.
+     *
+     * @param resources Resources to create the drawable for.
+     * @param id        Resource id of the drawable.
+     * @param theme     Theme to decode the drawable with or null.
+     * @return The drawable.
+     */
+    static Drawable get(Resources resources, int id, Resources.Theme theme) {
+        Drawable.ConstantState state;
+        synchronized (ArrowAssets.class) {
+            state = states.get(id);
+        }
+        if (state != null)
+            return state.newDrawable(resources);
+        return decode(resources, id, theme);
+    }
+
+    /**
+     * Decodes a drawable.
+     *
+     * @param resources Resources to decode the drawable from.
+     * @param id        Resource id of the drawable.
+     * @param theme     Theme to decode the drawable with or null.
+     * @return The drawable.
+     */
+    @SuppressWarnings("deprecation")
+    private static Drawable decode(Resources resources, int id, Resources.Theme theme) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            return resources.getDrawable(id, theme);
+        } else {
+            return resources.getDrawable(id);
+        }
+    }
+}
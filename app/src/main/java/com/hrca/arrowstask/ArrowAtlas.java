@@ -0,0 +1,141 @@
+package com.hrca.arrowstask;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+
+/**
+ * Single bitmap with all arrows rasterized side by side at the size of a grid cell.
+ * Drawing a cell copies a region of the bitmap without scaling.
+ */
+class ArrowAtlas {
+    /**
+     * Bitmap with the arrows or null if the atlas was never built.
+     */
+    private Bitmap bitmap;
+    /**
+     * Size of a single arrow region in pixels.
+     */
+    private int cellSize;
+    /**
+     * True when the atlas must be rebuilt before drawing.
+     */
+    private boolean dirty = true;
+    /**
+     * Regions of the arrows in the bitmap, indexed by arrow.
+     */
+    private final Rect[] sources = new Rect[ArrowBoard.ARROW_COUNT];
+    /**
+     * Reused destination rectangle.
+     */
+    private final Rect destination = new Rect();
+    /**
+     * Paint used to copy arrows.
+     */
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    ArrowAtlas() {
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = new Rect();
+        }
+    }
+
+    /**
+     * Checks if the atlas can be used to draw cells of the given size.
+     *
+     * @param cellSize Size of a cell in pixels.
+     * @return True if the atlas is up to date.
+     */
+    public boolean isValid(int cellSize) {
+        return !dirty && bitmap != null && this.cellSize == cellSize;
+    }
+
+    /**
+     * Marks the atlas to be rebuilt before it is used again.
+     */
+    public void invalidate() {
+        dirty = true;
+    }
+
+    /**
+     * Rasterizes the arrows at the given cell size.
+     * The bitmap is reused if its size does not change.
+     *
+     * @param cellSize  Size of a cell in pixels, must be positive.
+     * @param drawables Drawables of the arrows, indexed by arrow.
+     */
+    public void build(int cellSize, Drawable[] drawables) {
+        int width = cellSize * drawables.length;
+        if (bitmap == null || bitmap.getWidth() != width || bitmap.getHeight() != cellSize) {
+            bitmap = Bitmap.createBitmap(width, cellSize, Bitmap.Config.ARGB_8888);
+        } else {
+            bitmap.eraseColor(Color.TRANSPARENT);
+        }
+        this.cellSize = cellSize;
+
+        Canvas canvas = new Canvas(bitmap);
+        for (int i = 0; i < drawables.length; i++) {
+            sources[i].set(i * cellSize, 0, (i + 1) * cellSize, cellSize);
+            rasterize(canvas, drawables[i], i * cellSize);
+        }
+        dirty = false;
+    }
+
+    /**
+     * Draws the drawable centered inside its region, scaled down to fit it if needed.
+     *
+     * @param canvas   Canvas of the atlas bitmap.
+     * @param drawable Drawable to draw.
+     * @param left     Left edge of the region.
+     */
+    private void rasterize(Canvas canvas, Drawable drawable, int left) {
+        if (drawable == null)
+            return;
+        int width = drawable.getIntrinsicWidth();
+        int height = drawable.getIntrinsicHeight();
+        if (width <= 0 || height <= 0) {
+            // drawables without intrinsic size (e.g. colors) fill the whole region
+            width = cellSize;
+            height = cellSize;
+        } else if (width > cellSize || height > cellSize) {
+            if (width > height) {
+                height = height * cellSize / width;
+                width = cellSize;
+            } else {
+                width = width * cellSize / height;
+                height = cellSize;
+            }
+        }
+        int x = left + (cellSize - width) / 2;
+        int y = (cellSize - height) / 2;
+        drawable.setBounds(x, y, x + width, y + height);
+        drawable.draw(canvas);
+    }
+
+    /**
+     * Draws an arrow into a cell.
+     *
+     * @param canvas Canvas to draw on.
+     * @param arrow  Arrow to draw.
+     * @param left   Left edge of the cell.
+     * @param top    Top edge of the cell.
+     */
+    public void draw(Canvas canvas, int arrow, int left, int top) {
+        destination.set(left, top, left + cellSize, top + cellSize);
+        canvas.drawBitmap(bitmap, sources[arrow], destination, paint);
+    }
+
+    /**
+     * Releases the bitmap.
+     */
+    public void release() {
+        if (bitmap != null) {
+            bitmap.recycle();
+            bitmap = null;
+        }
+        dirty = true;
+    }
+}
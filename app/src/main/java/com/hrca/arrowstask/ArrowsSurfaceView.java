@@ -0,0 +1,103 @@
+package com.hrca.arrowstask;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+/**
+ * Surface showing an arrows task drawn by a {@link RenderThread}.
+ * The view itself only hands its surface and the touch downs over to the render thread.
+ */
+public class ArrowsSurfaceView extends SurfaceView implements SurfaceHolder.Callback {
+    /**
+     * Thread drawing into the surface and resolving taps or null if none is set.
+     */
+    private RenderThread renderThread;
+    /**
+     * Holder of the current surface or null if there is none.
+     */
+    private SurfaceHolder surface;
+    /**
+     * Width of the current surface.
+     */
+    private int surfaceWidth;
+    /**
+     * Height of the current surface.
+     */
+    private int surfaceHeight;
+
+    public ArrowsSurfaceView(Context context) {
+        super(context);
+        init();
+    }
+
+    public ArrowsSurfaceView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init();
+    }
+
+    public ArrowsSurfaceView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+        init();
+    }
+
+    private void init() {
+        getHolder().addCallback(this);
+    }
+
+    /**
+     * Sets the thread drawing into the surface. The current surface, if any, is handed over to it.
+     *
+     * @param renderThread The started render thread.
+     */
+    void setRenderThread(RenderThread renderThread) {
+        this.renderThread = renderThread;
+        if (surface != null)
+            renderThread.setSurface(surface, surfaceWidth, surfaceHeight);
+    }
+
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+        // the render thread starts drawing once the size is known
+    }
+
+    @Override
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+        surface = holder;
+        surfaceWidth = width;
+        surfaceHeight = height;
+        if (renderThread != null)
+            renderThread.setSurface(holder, width, height);
+    }
+
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        surface = null;
+        // returns only after the render thread stopped drawing into the surface
+        if (renderThread != null)
+            renderThread.clearSurface(holder);
+    }
+
+    @SuppressLint("ClickableViewAccessibility")
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+            case MotionEvent.ACTION_POINTER_DOWN:
+                // the cell is resolved on the render thread with the layout it draws
+                int pointerIndex = event.getActionIndex();
+                if (renderThread != null) {
+                    renderThread.offerTap(event.getX(pointerIndex), event.getY(pointerIndex),
+                            event.getEventTime() * 1000000L);
+                    playSoundEffect(SoundEffectConstants.CLICK);
+                }
+                break;
+        }
+        // the whole gesture of every pointer is consumed by its down event
+        return true;
+    }
+}
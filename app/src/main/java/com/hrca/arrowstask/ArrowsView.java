@@ -1,30 +1,83 @@
 package com.hrca.arrowstask;
 
+import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
 import android.view.View;
-import android.view.ViewGroup;
-import android.widget.AdapterView;
-import android.widget.BaseAdapter;
-import android.widget.GridView;
-import android.widget.ImageView;
 
-import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Shows a square grid of arrows.
+ * The whole grid is drawn by the view itself, without any child views.
+ * Cells are selected by touch or with a cursor moved by keyboard, D-pad or gamepad, see {@link GridKeyInput}.
  */
-public class ArrowsView extends GridView {
+public class ArrowsView extends View {
     /**
-     * Number of rows and column.
+     * Default number of rows and columns.
      */
-    public static final int GRID_SIZE = 4;
+    public static final int DEFAULT_GRID_SIZE = 4;
+    /**
+     * Default color of hit effects.
+     */
+    public static final int DEFAULT_HIT_COLOR = 0xFF4CAF50;
+    /**
+     * Default color of miss effects.
+     */
+    public static final int DEFAULT_MISS_COLOR = 0xFFF44336;
+    /**
+     * Default color of the key input cursor.
+     */
+    public static final int DEFAULT_CURSOR_COLOR = 0xFF2196F3;
+    /**
+     * Number of clicks kept until the next frame, more clicks report the kept ones right away.
+     */
+    private static final int MAX_PENDING_CLICKS = 16;
+    /**
+     * Seconds the background thread of all views is kept without any work.
+     */
+    private static final long BACKGROUND_KEEP_ALIVE = 10;
+    /**
+     * Executor preparing boards and arrows of a new grid size and stopping replaced generators,
+     * so none of it blocks the UI thread. Its single daemon thread ends when idle.
+     */
+    private static final ExecutorService RESIZE_EXECUTOR = createResizeExecutor();
     /**
      * Listener of ArrowsView events.
      */
     protected ArrowsViewListener listener;
+    /**
+     * Recorder of input latency and frame timing or null if not recorded.
+     */
+    protected SessionMetrics metrics;
+    /**
+     * Log of board sequences and taps or null if not logged.
+     */
+    protected SessionLog sessionLog;
+    /**
+     * Statistics of the taps or null if not tracked.
+     */
+    protected TapStatistics tapStatistics;
+    /**
+     * Policy changing the grid size between boards or null to keep it.
+     */
+    protected DifficultyPolicy difficultyPolicy;
     /**
      * Drawable for up arrow.
      */
@@ -41,6 +94,172 @@ public class ArrowsView extends GridView {
      * Drawable for right arrow.
      */
     private Drawable rightArrow;
+    /**
+     * Arrow drawables indexed by arrow, kept so rasterizing the atlas allocates no array.
+     */
+    private final Drawable[] arrowDrawables = new Drawable[ArrowBoard.ARROW_COUNT];
+    /**
+     * Number of rows and columns.
+     */
+    private int gridSize;
+    /**
+     * Largest space between two neighbouring cells in pixels, reduced for large grids.
+     */
+    private int cellSpacing;
+    /**
+     * Position and size of the cells within the view.
+     */
+    private final GridGeometry geometry = new GridGeometry();
+    /**
+     * Arrow grid model or null until the view is attached or its boards are requested.
+     */
+    private ArrowGrid grid;
+    /**
+     * Seed of the board sequence created with the grid model.
+     */
+    private long seed;
+    /**
+     * Number of randomized cells per board besides the moved up arrow
+     * or {@link BoardSequence#FULL_REGENERATION}.
+     */
+    private int partialChanges;
+    /**
+     * Reused clip bounds of the canvas.
+     */
+    private final Rect clipBounds = new Rect();
+    /**
+     * Arrows rasterized at the current cell size.
+     */
+    private ArrowAtlas atlas = new ArrowAtlas();
+    /**
+     * Hit and miss effects drawn over the cells.
+     */
+    private final EffectPool effects = new EffectPool(EffectPool.DEFAULT_CAPACITY);
+    /**
+     * Steps the effects every frame while any is active.
+     */
+    private FrameTicker effectTicker;
+    /**
+     * Moves the cursor and selects cells on key and gamepad input.
+     */
+    private final GridKeyInput keyInput = new GridKeyInput(new GridKeyInput.Target() {
+        @Override
+        public void moveCursor(int rows, int columns) {
+            ArrowsView.this.moveCursor(rows, columns);
+        }
+
+        @Override
+        public void selectCursor(long eventTime) {
+            ArrowsView.this.selectCursor(eventTime);
+        }
+    });
+    /**
+     * Paint of the cursor.
+     */
+    private final Paint cursorPaint = new Paint();
+    /**
+     * Width of the cursor outline in pixels.
+     */
+    private int cursorStroke;
+    /**
+     * Row of the cursor, clamped to the grid when used.
+     */
+    private int cursorRow;
+    /**
+     * Column of the cursor, clamped to the grid when used.
+     */
+    private int cursorColumn;
+    /**
+     * Whether the cursor is shown, from the first key input until the next touch.
+     */
+    private boolean cursorVisible;
+    /**
+     * True while the view is attached to a window.
+     */
+    private boolean attached;
+    /**
+     * Times of the clicks not yet reported to the listener,
+     * in the {@link android.os.SystemClock#uptimeMillis()} time base.
+     */
+    private final long[] pendingTimes = new long[MAX_PENDING_CLICKS];
+    /**
+     * Whether the clicks not yet reported to the listener were hits.
+     */
+    private final boolean[] pendingHits = new boolean[MAX_PENDING_CLICKS];
+    /**
+     * Number of clicks not yet reported to the listener.
+     */
+    private int pendingCount;
+    /**
+     * True when dispatch of pending clicks is scheduled for the next frame.
+     */
+    private boolean dispatchScheduled;
+    /**
+     * Handler of the UI thread receiving prepared grids.
+     */
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    /**
+     * Number of the latest grid size preparation, grids of older ones are discarded.
+     */
+    private int resizeGeneration;
+    /**
+     * Grid size being prepared in the background or 0 if none is.
+     */
+    private int preparingSize;
+    /**
+     * Number of arrow drawable changes, an atlas rasterized before a change is discarded.
+     */
+    private int drawableChanges;
+    /**
+     * Reports all clicks made since the previous frame to the listener at once.
+     */
+    private final Runnable dispatchClicks = new Runnable() {
+        @Override
+        public void run() {
+            dispatchScheduled = false;
+            if (pendingCount == 0)
+                return;
+            int count = pendingCount;
+            pendingCount = 0;
+            if (metrics != null)
+                metrics.onClicksDispatched();
+            if (listener == null)
+                return;
+            // clicks of one input event are reported together, each with its own time for the deadline
+            int hits = 0;
+            int misses = 0;
+            for (int i = 0; i < count; i++) {
+                if (pendingHits[i])
+                    hits++;
+                else
+                    misses++;
+                if (i + 1 == count || pendingTimes[i + 1] != pendingTimes[i]) {
+                    listener.onArrowsClicked(hits, misses, pendingTimes[i]);
+                    hits = 0;
+                    misses = 0;
+                }
+            }
+        }
+    };
+
+    /**
+     * Creates the executor preparing new grid sizes.
+     *
+     * @return Executor with a single daemon thread, started on demand and ended when idle.
+     */
+    private static ExecutorService createResizeExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, BACKGROUND_KEEP_ALIVE, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "ArrowsView");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
 
     public ArrowsView(Context context) {
         super(context);
@@ -66,6 +285,45 @@ public class ArrowsView extends GridView {
         this.listener = listener;
     }
 
+    /**
+     * Sets recorder of input latency and frame timing.
+     *
+     * @param metrics The recorder or null to stop recording.
+     */
+    public void setMetrics(SessionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets log of board sequences and taps. The current board sequence is logged immediately
+     * unless it was already logged to the same log.
+     *
+     * @param sessionLog The log or null to stop logging.
+     */
+    public void setSessionLog(SessionLog sessionLog) {
+        this.sessionLog = sessionLog;
+        if (sessionLog != null && grid != null)
+            grid.logSequence();
+    }
+
+    /**
+     * Sets statistics of the taps, updated with every tap on a cell.
+     *
+     * @param tapStatistics The statistics or null to stop tracking.
+     */
+    public void setTapStatistics(TapStatistics tapStatistics) {
+        this.tapStatistics = tapStatistics;
+    }
+
+    /**
+     * Sets the policy changing the grid size between boards. Requires tap statistics.
+     *
+     * @param difficultyPolicy The policy or null to keep the grid size.
+     */
+    public void setDifficultyPolicy(DifficultyPolicy difficultyPolicy) {
+        this.difficultyPolicy = difficultyPolicy;
+    }
+
     private void init(AttributeSet attrs, int defStyle) {
         // Load attributes
         final TypedArray a = getContext().obtainStyledAttributes(
@@ -75,16 +333,314 @@ public class ArrowsView extends GridView {
         downArrow = resolveDrawable(a, R.styleable.ArrowsView_downArrowDrawable, R.drawable.d);
         leftArrow = resolveDrawable(a, R.styleable.ArrowsView_leftArrowDrawable, R.drawable.l);
         rightArrow = resolveDrawable(a, R.styleable.ArrowsView_rightArrowDrawable, R.drawable.r);
+        updateArrowDrawables();
+        cellSpacing = a.getDimensionPixelSize(R.styleable.ArrowsView_cellSpacing, 0);
+        gridSize = a.getInt(R.styleable.ArrowsView_gridSize, DEFAULT_GRID_SIZE);
+        if (gridSize <= 0)
+            gridSize = DEFAULT_GRID_SIZE;
+        partialChanges = a.getInt(R.styleable.ArrowsView_partialChanges, BoardSequence.FULL_REGENERATION);
+        if (partialChanges < 0)
+            partialChanges = BoardSequence.FULL_REGENERATION;
+
+        effects.setColors(a.getColor(R.styleable.ArrowsView_hitColor, DEFAULT_HIT_COLOR),
+                a.getColor(R.styleable.ArrowsView_missColor, DEFAULT_MISS_COLOR));
+        cursorPaint.setStyle(Paint.Style.STROKE);
+        cursorPaint.setColor(a.getColor(R.styleable.ArrowsView_cursorColor, DEFAULT_CURSOR_COLOR));
 
         a.recycle();
 
-        // set number of columns to unchangeable value.
-        super.setNumColumns(GRID_SIZE);
+        // key events reach the view without focus traversal through cells
+        setFocusable(true);
+
+        effectTicker = new FrameTicker(new FrameTicker.Callback() {
+            @Override
+            public void onFrame(long frameTimeNanos) {
+                if (!effects.step(frameTimeNanos, ArrowsView.this))
+                    effectTicker.stop();
+            }
+        });
+
+        // the grid is populated on attach, unless boards kept from another view are set before
+        seed = System.nanoTime();
+    }
+
+    /**
+     * Gets the number of randomized cells per board besides the moved up arrow.
+     *
+     * @return Number of changes or {@link BoardSequence#FULL_REGENERATION}.
+     */
+    public int getPartialChanges() {
+        return partialChanges;
+    }
+
+    /**
+     * Makes each board keep most of the previous board and change only some cells,
+     * so fewer cells change between consecutive boards.
+     * The board sequence is restarted with the current seed.
+     *
+     * @param partialChanges Number of randomized cells besides the moved up arrow
+     *                       or {@link BoardSequence#FULL_REGENERATION} to generate every board from scratch.
+     */
+    public void setPartialChanges(int partialChanges) {
+        if (partialChanges < BoardSequence.FULL_REGENERATION)
+            throw new IllegalArgumentException("Number of changes must not be negative.");
+        if (partialChanges == this.partialChanges)
+            return;
+        this.partialChanges = partialChanges;
+        restartSequence(getSeed());
+    }
+
+    /**
+     * Gets the number of rows and columns.
+     *
+     * @return Grid size.
+     */
+    public int getGridSize() {
+        return gridSize;
+    }
+
+    /**
+     * Sets the number of rows and columns.
+     * The board sequence is restarted with the current seed.
+     *
+     * @param gridSize Number of rows and columns.
+     */
+    public void setGridSize(int gridSize) {
+        if (gridSize <= 0)
+            throw new IllegalArgumentException("Grid size must be positive.");
+        if (gridSize == this.gridSize)
+            return;
+        this.gridSize = gridSize;
+        restartSequence(getSeed());
+        updateGeometry(getWidth(), getHeight());
+    }
+
+    /**
+     * Prepares a board sequence of another size, seeded from the current one so sessions stay reproducible.
+     * Its first board and the arrows at its cell size are made in the background,
+     * the current size is shown until the prepared grid is swapped in at the start of a frame.
+     *
+     * @param gridSize Number of rows and columns.
+     */
+    private void prepareGridSize(final int gridSize) {
+        final int generation = ++resizeGeneration;
+        final int drawableVersion = drawableChanges;
+        preparingSize = gridSize;
+        final long seed = (getSeed() + 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+        final int partialChanges = this.partialChanges;
+        GridGeometry next = new GridGeometry();
+        next.layout(gridSize, cellSpacing, getPaddingLeft(), getPaddingTop(),
+                getWidth() - getPaddingLeft() - getPaddingRight(), getHeight() - getPaddingTop() - getPaddingBottom());
+        final int cellSize = next.getCellSize();
+        // drawables are not thread safe, the atlas is rasterized from copies sharing their bitmaps
+        final Drawable[] drawables = copyDrawables();
+        RESIZE_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                final BoardState state = new BoardState(gridSize, seed, partialChanges);
+                // the generator is handed to the UI thread through the handler, which keeps next() ordered
+                state.generator.start();
+                state.board = state.generator.next();
+                ArrowAtlas prepared = null;
+                if (drawables != null && cellSize > 0) {
+                    prepared = new ArrowAtlas();
+                    prepared.build(cellSize, drawables);
+                }
+                final ArrowAtlas preparedAtlas = prepared;
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != resizeGeneration || !attached) {
+                            discard(state, preparedAtlas);
+                            return;
+                        }
+                        // swapped before the next frame is drawn, so no frame shows a board on the wrong layout
+                        ViewCompat.postOnAnimation(ArrowsView.this, new Runnable() {
+                            @Override
+                            public void run() {
+                                if (generation != resizeGeneration || !attached) {
+                                    discard(state, preparedAtlas);
+                                    return;
+                                }
+                                swapGrid(state, drawableVersion == drawableChanges ? preparedAtlas : null);
+                            }
+                        });
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Shows a grid prepared by {@link #prepareGridSize(int)}, stopping the replaced generator in the background.
+     *
+     * @param state State of the prepared boards.
+     * @param atlas Arrows rasterized at the cell size of the prepared grid or null to rasterize them when drawn.
+     */
+    private void swapGrid(BoardState state, ArrowAtlas atlas) {
+        preparingSize = 0;
+        stopInBackground(grid.generator);
+        gridSize = state.getSequence().getSize();
+        grid = new ArrowGrid(state);
+        if (atlas != null) {
+            this.atlas.release();
+            this.atlas = atlas;
+        }
+        updateGeometry(getWidth(), getHeight());
+    }
+
+    /**
+     * Drops a prepared grid which is no longer wanted.
+     *
+     * @param state State of the prepared boards.
+     * @param atlas Arrows rasterized for the prepared grid or null.
+     */
+    private void discard(BoardState state, ArrowAtlas atlas) {
+        stopInBackground(state.generator);
+        if (atlas != null)
+            atlas.release();
+    }
+
+    /**
+     * Stops a generator which is no longer used without waiting for its producer thread.
+     *
+     * @param generator The generator, never started again.
+     */
+    private static void stopInBackground(final BoardGenerator generator) {
+        RESIZE_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                generator.stop();
+            }
+        });
+    }
+
+    /**
+     * Cancels the preparation of a new grid size, its result is discarded once it arrives.
+     */
+    private void cancelResize() {
+        resizeGeneration++;
+        preparingSize = 0;
+    }
+
+    /**
+     * Copies the arrow drawables so they can be drawn on another thread.
+     *
+     * @return Copies indexed by arrow or null if a drawable cannot be copied.
+     */
+    private Drawable[] copyDrawables() {
+        Drawable[] drawables = new Drawable[arrowDrawables.length];
+        for (int i = 0; i < drawables.length; i++) {
+            if (arrowDrawables[i] == null)
+                continue;
+            Drawable.ConstantState state = arrowDrawables[i].getConstantState();
+            if (state == null)
+                return null;
+            drawables[i] = state.newDrawable(getResources());
+        }
+        return drawables;
+    }
+
+    /**
+     * Restarts the board sequence with the given seed.
+     * Views with the same seed show the same sequence of boards for the same hits.
+     *
+     * @param seed Seed of the board sequence.
+     */
+    public void setSeed(long seed) {
+        restartSequence(seed);
+    }
+
+    /**
+     * Replaces the board sequence by a new one of the current grid size and number of changes.
+     * A detached view only keeps the seed, the first board is generated once it is attached,
+     * so a sequence replaced before that, like by boards kept across a configuration change, costs nothing.
+     *
+     * @param seed Seed of the new board sequence.
+     */
+    private void restartSequence(long seed) {
+        cancelResize();
+        if (grid != null)
+            stopInBackground(grid.generator);
+        this.seed = seed;
+        grid = attached ? new ArrowGrid(new BoardState(gridSize, seed, partialChanges)) : null;
+        invalidate();
+    }
+
+    /**
+     * Gets the grid model, creating the board sequence if it does not exist yet.
+     *
+     * @return The grid model.
+     */
+    private ArrowGrid getGrid() {
+        if (grid == null)
+            grid = new ArrowGrid(new BoardState(gridSize, seed, partialChanges));
+        return grid;
+    }
+
+    /**
+     * Starts a new round in place: drops unreported clicks and shows a new board sequence.
+     * Rasterized arrows and the layout are kept, so the next round starts without any decoding.
+     *
+     * @param seed Seed of the new board sequence.
+     */
+    public void reset(long seed) {
+        removeCallbacks(dispatchClicks);
+        dispatchScheduled = false;
+        pendingCount = 0;
+        effects.clear();
+        setSeed(seed);
+        invalidate();
+    }
+
+    /**
+     * Gets the board sequence and current board, which can be kept to attach another view later.
+     *
+     * @return State of the shown boards.
+     */
+    public BoardState getBoardState() {
+        return getGrid().state;
+    }
 
-        // populate grid
-        ArrowAdapter arrowAdapter = new ArrowAdapter();
-        setAdapter(arrowAdapter);
-        setOnItemClickListener(arrowAdapter);
+    /**
+     * Shows boards of a state kept from another view, continuing its sequence without generating a new board.
+     * Grid size and number of changes are taken from the state.
+     *
+     * @param state State of the boards to show.
+     */
+    public void setBoardState(BoardState state) {
+        cancelResize();
+        if (grid != null) {
+            if (state == grid.state)
+                return;
+            stopInBackground(grid.generator);
+        }
+        BoardSequence sequence = state.getSequence();
+        gridSize = sequence.getSize();
+        partialChanges = sequence.getChanges();
+        grid = new ArrowGrid(state);
+        updateGeometry(getWidth(), getHeight());
+    }
+
+    /**
+     * Gets the seed of the shown board sequence.
+     *
+     * @return Seed of the board sequence.
+     */
+    public long getSeed() {
+        return grid == null ? seed : grid.generator.getSequence().getSeed();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        attached = true;
+        // a new grid starts its generator itself
+        if (grid == null)
+            getGrid();
+        else
+            grid.generator.start();
     }
 
     /**
@@ -101,11 +657,8 @@ public class ArrowsView extends GridView {
             result = a.getDrawable(attribute);
         }
         if (result == null) {
-            if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.LOLLIPOP) {
-                result = getResources().getDrawable(defaultResourceId, getContext().getTheme());
-            } else {
-                result = getResources().getDrawable(defaultResourceId);
-            }
+            // preloaded in the background by the main menu if possible
+            result = ArrowAssets.get(getResources(), defaultResourceId, getContext().getTheme());
         }
         if (result != null)
             result.setCallback(this);
@@ -113,11 +666,6 @@ public class ArrowsView extends GridView {
         return result;
     }
 
-    @Override
-    public void setNumColumns(int numColumns) {
-        // prevent number of columns to be changed.
-    }
-
     /**
      * Gets the arrow drawable value.
      *
@@ -146,8 +694,202 @@ public class ArrowsView extends GridView {
 
         int size = widthSize < heightSize ? widthSize : heightSize;
 
-        int finalMeasureSpec = MeasureSpec.makeMeasureSpec(size, MeasureSpec.EXACTLY);
-        super.onMeasure(finalMeasureSpec, finalMeasureSpec);
+        setMeasuredDimension(size, size);
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        updateGeometry(w, h);
+    }
+
+    /**
+     * Computes cell size and grid position for the view size.
+     *
+     * @param w Width of the view.
+     * @param h Height of the view.
+     */
+    private void updateGeometry(int w, int h) {
+        // effects are positioned by the old layout
+        effects.clear();
+        // center the grid within the padded area
+        geometry.layout(gridSize, cellSpacing, getPaddingLeft(), getPaddingTop(),
+                w - getPaddingLeft() - getPaddingRight(), h - getPaddingTop() - getPaddingBottom());
+        cursorStroke = Math.max(2, geometry.getCellSize() / 16);
+        cursorPaint.setStrokeWidth(cursorStroke);
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        final int cellSize = geometry.getCellSize();
+        if (cellSize <= 0 || grid == null)
+            return;
+        if (!atlas.isValid(cellSize))
+            atlas.build(cellSize, arrowDrawables);
+
+        final ArrowBoard board = grid.state.board;
+        final int step = geometry.getStep();
+        final int gridLeft = geometry.getLeft();
+        final int gridTop = geometry.getTop();
+        // skip cells outside the clip; with hardware acceleration, the default, the clip covers
+        // the whole view and every cell is drawn, only software rendered windows skip any
+        int firstRow = 0, lastRow = gridSize - 1, firstColumn = 0, lastColumn = gridSize - 1;
+        if (canvas.getClipBounds(clipBounds)) {
+            firstRow = Math.max(firstRow, (clipBounds.top - gridTop) / step);
+            lastRow = Math.min(lastRow, (clipBounds.bottom - 1 - gridTop) / step);
+            firstColumn = Math.max(firstColumn, (clipBounds.left - gridLeft) / step);
+            lastColumn = Math.min(lastColumn, (clipBounds.right - 1 - gridLeft) / step);
+        }
+        for (int row = firstRow; row <= lastRow; row++) {
+            int top = gridTop + row * step;
+            int i = row * gridSize + firstColumn;
+            for (int column = firstColumn, left = gridLeft + firstColumn * step; column <= lastColumn;
+                 column++, left += step, i++) {
+                atlas.draw(canvas, board.get(i), left, top);
+            }
+        }
+        // effects are drawn in the same pass, over the arrows
+        effects.draw(canvas);
+        if (cursorVisible) {
+            int cell = getCursorCell();
+            float left = geometry.getCellLeft(cell) - cursorStroke / 2f;
+            float top = geometry.getCellTop(cell) - cursorStroke / 2f;
+            float size = geometry.getCellSize() + cursorStroke;
+            canvas.drawRect(left, top, left + size, top + size, cursorPaint);
+        }
+        if (metrics != null)
+            metrics.onFrameDrawn(getDrawingTime());
+    }
+
+    /**
+     * Invalidates the view for a changed cell.
+     * The rectangle is only a hint used by software rendering. Hardware accelerated windows, the default,
+     * draw the whole view again, so a hit costs the same however few cells it changes.
+     *
+     * @param cell Index of the cell.
+     */
+    private void invalidateCell(int cell) {
+        int left = geometry.getCellLeft(cell);
+        int top = geometry.getCellTop(cell);
+        invalidate(left, top, left + geometry.getCellSize(), top + geometry.getCellSize());
+    }
+
+    /**
+     * Gets the cell under the cursor.
+     *
+     * @return Index of the cell, the cursor is clamped to the current grid.
+     */
+    private int getCursorCell() {
+        cursorRow = Math.max(0, Math.min(cursorRow, gridSize - 1));
+        cursorColumn = Math.max(0, Math.min(cursorColumn, gridSize - 1));
+        return cursorRow * gridSize + cursorColumn;
+    }
+
+    /**
+     * Invalidates the area of the cursor outline.
+     */
+    private void invalidateCursor() {
+        int cell = getCursorCell();
+        int left = geometry.getCellLeft(cell) - cursorStroke;
+        int top = geometry.getCellTop(cell) - cursorStroke;
+        int size = geometry.getCellSize() + 2 * cursorStroke;
+        invalidate(left, top, left + size, top + size);
+    }
+
+    /**
+     * Moves the cursor by one cell, stopping at the edges. The first key input only shows the cursor.
+     *
+     * @param rows    Rows to move by.
+     * @param columns Columns to move by.
+     */
+    private void moveCursor(int rows, int columns) {
+        if (cursorVisible) {
+            invalidateCursor();
+            cursorRow += rows;
+            cursorColumn += columns;
+        }
+        cursorVisible = true;
+        invalidateCursor();
+    }
+
+    /**
+     * Clicks the cell under the cursor like a tap. The first key input only shows the cursor.
+     *
+     * @param eventTime Time of the input in the {@link android.os.SystemClock#uptimeMillis()} time base.
+     */
+    private void selectCursor(long eventTime) {
+        if (!cursorVisible) {
+            moveCursor(0, 0);
+            return;
+        }
+        if (geometry.getCellSize() <= 0)
+            return;
+        if (metrics != null)
+            metrics.onTouchDown(eventTime);
+        playSoundEffect(SoundEffectConstants.CLICK);
+        grid.onCellClick(getCursorCell(), eventTime);
+    }
+
+    @Override
+    public boolean onKeyDown(int keyCode, KeyEvent event) {
+        return keyInput.onKeyDown(keyCode, event) || super.onKeyDown(keyCode, event);
+    }
+
+    @Override
+    public boolean onGenericMotionEvent(MotionEvent event) {
+        return keyInput.onGenericMotionEvent(event) || super.onGenericMotionEvent(event);
+    }
+
+    @SuppressLint("ClickableViewAccessibility")
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+            case MotionEvent.ACTION_POINTER_DOWN:
+                // touch hides the key input cursor until the next key input
+                if (cursorVisible) {
+                    invalidateCursor();
+                    cursorVisible = false;
+                }
+                // resolve the tap immediately, without waiting for the finger to lift
+                int pointerIndex = event.getActionIndex();
+                int cell = geometry.cellAt(event.getX(pointerIndex), event.getY(pointerIndex));
+                if (cell >= 0) {
+                    if (metrics != null)
+                        metrics.onTouchDown(event.getEventTime());
+                    playSoundEffect(SoundEffectConstants.CLICK);
+                    grid.onCellClick(cell, event.getEventTime());
+                }
+                break;
+        }
+        // the whole gesture of every pointer is consumed by its down event
+        return true;
+    }
+
+    /**
+     * Reports clicks made since the previous frame to the listener now instead of with the next frame.
+     */
+    public void dispatchPendingClicks() {
+        removeCallbacks(dispatchClicks);
+        dispatchClicks.run();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        // deliver taps which would otherwise be lost with the pending frame
+        dispatchPendingClicks();
+        // boards are generated on the calling thread until the view is attached again
+        attached = false;
+        cancelResize();
+        effectTicker.stop();
+        effects.clear();
+        // stopped right away, the generator is started again if the view is attached again
+        if (grid != null)
+            grid.generator.stop();
+        atlas.release();
+        super.onDetachedFromWindow();
     }
 
     /**
@@ -173,9 +915,22 @@ public class ArrowsView extends GridView {
             default:
                 return;
         }
+        updateArrowDrawables();
+        drawableChanges++;
+        atlas.invalidate();
         invalidate();
     }
 
+    /**
+     * Updates the arrow drawables indexed by arrow from the drawable of each arrow.
+     */
+    private void updateArrowDrawables() {
+        arrowDrawables[ArrowBoard.UP] = upArrow;
+        arrowDrawables[ArrowBoard.DOWN] = downArrow;
+        arrowDrawables[ArrowBoard.LEFT] = leftArrow;
+        arrowDrawables[ArrowBoard.RIGHT] = rightArrow;
+    }
+
     /**
      * Arrow enumeration.
      */
@@ -188,82 +943,119 @@ public class ArrowsView extends GridView {
      */
     public interface ArrowsViewListener {
         /**
-         * Invoked when arrow is clicked.
+         * Invoked with the next frame for the arrow clicks made since the previous frame,
+         * once for each input time in the order of the clicks.
          *
-         * @param hit True when desired arrow was clicked.
+         * @param hits   Number of clicks on the desired arrow.
+         * @param misses Number of clicks on other arrows.
+         * @param time   Time of the clicks in the {@link android.os.SystemClock#uptimeMillis()} time base.
          */
-        void onArrowClicked(boolean hit);
+        void onArrowsClicked(int hits, int misses, long time);
     }
 
     /**
-     * Adapter for arrow drawables.
-     * Generates arrow grid and listens to item clicks.
+     * Arrow grid model.
+     * Generates arrow grid and handles cell clicks.
      */
-    private class ArrowAdapter extends BaseAdapter implements OnItemClickListener {
+    private class ArrowGrid {
+        /**
+         * Shown boards.
+         */
+        protected final BoardState state;
+        /**
+         * Generator of boards.
+         */
+        protected final BoardGenerator generator;
         /**
-         * Generated arrows.
+         * Copy of the board currently drawn, kept after the generator reuses its slot.
          */
-        protected final Arrow[] arrows;
+        protected final ArrowBoard shown;
         /**
-         * Random number generator to generate random arrow array.
+         * Reused indices of cells changed by the last generation.
          */
-        protected final Random random = new Random();
+        private final int[] changed;
 
-        ArrowAdapter() {
-            arrows = new Arrow[GRID_SIZE * GRID_SIZE];
-            generate();
+        /**
+         * @param state Boards to show, the first board is generated if there is none yet.
+         */
+        ArrowGrid(BoardState state) {
+            this.state = state;
+            generator = state.generator;
+            shown = new ArrowBoard(generator.getSequence().getSize());
+            changed = new int[shown.getCellCount()];
+            if (attached)
+                generator.start();
+            if (state.board == null)
+                state.board = generator.next();
+            shown.copyFrom(state.board);
+            invalidate();
+            logSequence();
         }
 
         /**
-         * Generates new arrows map.
+         * Logs the board sequence unless it was already logged, so following taps can be replayed.
          */
-        public void generate() {
-            Arrow[] availableArrows = Arrow.values();
-            for (int i = 0; i < arrows.length; i++) {
-                arrows[i] = availableArrows[random.nextInt(availableArrows.length - 1) + 1];
+        void logSequence() {
+            if (sessionLog != null && state.loggedTo != sessionLog) {
+                BoardSequence sequence = generator.getSequence();
+                sessionLog.beginSequence(sequence.getSize(), sequence.getSeed(), sequence.getChanges());
+                state.loggedTo = sessionLog;
             }
-            arrows[random.nextInt(arrows.length)] = availableArrows[0];
-            notifyDataSetChanged();
-        }
-
-        @Override
-        public int getCount() {
-            return arrows.length;
-        }
-
-        @Override
-        public Object getItem(int i) {
-            return arrows[i];
         }
 
-        @Override
-        public long getItemId(int i) {
-            return i;
-        }
-
-        @Override
-        public View getView(int position, View convertView, ViewGroup viewGroup) {
-            ImageView imageView;
-            if (convertView == null) {
-                // if it's not recycled, initialize some attributes
-                imageView = new ImageView(getContext());
-                imageView.setScaleType(ImageView.ScaleType.CENTER_INSIDE);
-                imageView.setAdjustViewBounds(true);
-            } else {
-                imageView = (ImageView) convertView;
+        /**
+         * Shows the next board of the sequence, rebinding only the cells that differ from the shown board.
+         * A board equal to the shown one does not invalidate the view at all.
+         */
+        public void generate() {
+            ArrowBoard board = state.board = generator.next();
+            if (geometry.getCellSize() > 0) {
+                int count = board.diff(shown, changed);
+                for (int i = 0; i < count; i++) {
+                    invalidateCell(changed[i]);
+                }
             }
-
-            imageView.setImageDrawable(getArrowDrawable(arrows[position]));
-            return imageView;
+            shown.copyFrom(board);
         }
 
-        @Override
-        public void onItemClick(AdapterView<?> adapterView, View view, int i, long l) {
-            boolean hit = arrows[i] == Arrow.values()[0];
-            if (listener != null)
-                listener.onArrowClicked(hit);
+        /**
+         * Handles click on a cell.
+         *
+         * @param i    Index of the clicked cell.
+         * @param time Time of the click in the {@link android.os.SystemClock#uptimeMillis()} time base.
+         */
+        public void onCellClick(int i, long time) {
+            boolean hit = state.board.isTarget(i);
+            if (sessionLog != null)
+                sessionLog.recordTap(i, hit, time);
+            if (tapStatistics != null)
+                tapStatistics.record(hit, time * 1000000L);
+            // only the grid size adapts, the target count and distractors stay those of the board sequence
+            int nextSize = gridSize;
+            if (hit && difficultyPolicy != null && tapStatistics != null && preparingSize == 0)
+                nextSize = difficultyPolicy.chooseGridSize(tapStatistics, gridSize);
+            if (pendingCount == MAX_PENDING_CLICKS)
+                dispatchPendingClicks();
+            pendingTimes[pendingCount] = time;
+            pendingHits[pendingCount] = hit;
+            pendingCount++;
             if (hit) {
+                // following clicks of the same frame are checked against the new arrows,
+                // boards of the current size are shown until those of a new size are prepared
                 generate();
+                if (nextSize != gridSize)
+                    prepareGridSize(nextSize);
+                if (metrics != null)
+                    metrics.onBoardGenerated();
+            }
+            if (geometry.getCellSize() > 0) {
+                effects.spawn(hit ? EffectPool.HIT : EffectPool.MISS, geometry.getCellLeft(i), geometry.getCellTop(i),
+                        geometry.getCellSize(), System.nanoTime());
+                effectTicker.start();
+            }
+            if (!dispatchScheduled) {
+                dispatchScheduled = true;
+                ViewCompat.postOnAnimation(ArrowsView.this, dispatchClicks);
             }
         }
     }
@@ -0,0 +1,40 @@
+package com.hrca.arrowstask;
+
+/**
+ * Board sequence shown by an {@link ArrowsView}, which can outlive the view.
+ * Holds the generator with the random state of the sequence and the current board,
+ * so a view attached to it later shows the same board and continues the same sequence.
+ */
+public class BoardState {
+    /**
+     * Generator of boards.
+     */
+    final BoardGenerator generator;
+    /**
+     * Current board or null if none was generated yet.
+     */
+    ArrowBoard board;
+    /**
+     * Log the sequence was written to or null if it was not logged.
+     */
+    SessionLog loggedTo;
+
+    /**
+     * @param size    Number of rows and columns.
+     * @param seed    Seed of the board sequence.
+     * @param changes Number of randomized cells per board besides the moved up arrow
+     *                or {@link BoardSequence#FULL_REGENERATION}.
+     */
+    public BoardState(int size, long seed, int changes) {
+        generator = new BoardGenerator(new BoardSequence(size, seed, changes));
+    }
+
+    /**
+     * Gets the board sequence.
+     *
+     * @return The sequence.
+     */
+    public BoardSequence getSequence() {
+        return generator.getSequence();
+    }
+}
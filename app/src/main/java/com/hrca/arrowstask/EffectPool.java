@@ -0,0 +1,218 @@
+package com.hrca.arrowstask;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.view.View;
+
+/**
+ * Fixed pool of short hit and miss effects drawn over cells.
+ * All effects live in preallocated parallel arrays and finished effects are removed by moving the last one
+ * into their slot, so spawning, stepping and drawing never allocate.
+ * When the pool is full the oldest effect is replaced.
+ */
+class EffectPool {
+    /**
+     * Expanding ring over a hit cell.
+     */
+    static final int HIT = 0;
+    /**
+     * Flash of a missed cell.
+     */
+    static final int MISS = 1;
+    /**
+     * Default number of effect slots.
+     */
+    static final int DEFAULT_CAPACITY = 32;
+    /**
+     * Duration of a hit effect in nanoseconds.
+     */
+    private static final long HIT_DURATION = 250000000L;
+    /**
+     * Duration of a miss effect in nanoseconds.
+     */
+    private static final long MISS_DURATION = 200000000L;
+
+    /**
+     * Type of the effect in each slot.
+     */
+    private final int[] types;
+    /**
+     * Left edge of the cell of each effect.
+     */
+    private final int[] lefts;
+    /**
+     * Top edge of the cell of each effect.
+     */
+    private final int[] tops;
+    /**
+     * Size of the cell of each effect.
+     */
+    private final int[] sizes;
+    /**
+     * Start time of each effect in nanoseconds.
+     */
+    private final long[] starts;
+    /**
+     * Number of active effects, they occupy the first slots.
+     */
+    private int count;
+    /**
+     * Time of the last step in nanoseconds.
+     */
+    private long now;
+    /**
+     * Paint of hit effects.
+     */
+    private final Paint hitPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    /**
+     * Paint of miss effects.
+     */
+    private final Paint missPaint = new Paint();
+    /**
+     * Color of hit effects without alpha.
+     */
+    private int hitColor;
+    /**
+     * Color of miss effects without alpha.
+     */
+    private int missColor;
+
+    /**
+     * @param capacity Number of effect slots.
+     */
+    EffectPool(int capacity) {
+        types = new int[capacity];
+        lefts = new int[capacity];
+        tops = new int[capacity];
+        sizes = new int[capacity];
+        starts = new long[capacity];
+        hitPaint.setStyle(Paint.Style.STROKE);
+        missPaint.setStyle(Paint.Style.FILL);
+    }
+
+    /**
+     * Sets colors of the effects. Alpha of the colors is replaced by the fading of the effects.
+     *
+     * @param hitColor  Color of hit effects.
+     * @param missColor Color of miss effects.
+     */
+    void setColors(int hitColor, int missColor) {
+        this.hitColor = hitColor & 0xFFFFFF;
+        this.missColor = missColor & 0xFFFFFF;
+    }
+
+    /**
+     * Starts an effect over a cell.
+     *
+     * @param type  {@link #HIT} or {@link #MISS}.
+     * @param left  Left edge of the cell.
+     * @param top   Top edge of the cell.
+     * @param size  Size of the cell.
+     * @param start Start time in nanoseconds.
+     */
+    void spawn(int type, int left, int top, int size, long start) {
+        int slot = count;
+        if (count == types.length) {
+            // replace the oldest effect
+            slot = 0;
+            for (int i = 1; i < count; i++) {
+                if (starts[i] < starts[slot])
+                    slot = i;
+            }
+        } else {
+            count++;
+        }
+        types[slot] = type;
+        lefts[slot] = left;
+        tops[slot] = top;
+        sizes[slot] = size;
+        starts[slot] = start;
+        if (start > now)
+            now = start;
+    }
+
+    /**
+     * Removes all effects.
+     */
+    void clear() {
+        count = 0;
+    }
+
+    /**
+     * Gets the number of active effects.
+     *
+     * @return Number of effects.
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the duration of an effect.
+     *
+     * @param type Type of the effect.
+     * @return Duration in nanoseconds.
+     */
+    private static long duration(int type) {
+        return type == HIT ? HIT_DURATION : MISS_DURATION;
+    }
+
+    /**
+     * Advances all effects to a frame and removes finished ones.
+     *
+     * @param frameTime Time of the frame in nanoseconds.
+     * @param target    View whose cells of the effects are invalidated, including those which just finished,
+     *                  or null if the whole frame is redrawn anyway.
+     * @return True if any effect is still active.
+     */
+    boolean step(long frameTime, View target) {
+        now = frameTime;
+        for (int i = count - 1; i >= 0; i--) {
+            if (target != null)
+                target.invalidate(lefts[i], tops[i], lefts[i] + sizes[i], tops[i] + sizes[i]);
+            if (frameTime - starts[i] >= duration(types[i])) {
+                count--;
+                types[i] = types[count];
+                lefts[i] = lefts[count];
+                tops[i] = tops[count];
+                sizes[i] = sizes[count];
+                starts[i] = starts[count];
+            }
+        }
+        return count > 0;
+    }
+
+    /**
+     * Draws all active effects as of the last step.
+     *
+     * @param canvas Canvas to draw to.
+     */
+    void draw(Canvas canvas) {
+        for (int i = 0; i < count; i++) {
+            long duration = duration(types[i]);
+            long elapsed = now - starts[i];
+            if (elapsed < 0)
+                elapsed = 0;
+            if (elapsed >= duration)
+                continue;
+            // fraction of the effect done
+            float progress = (float) elapsed / duration;
+            int alpha = (int) (255 * (1 - progress));
+            int size = sizes[i];
+            if (types[i] == HIT) {
+                float half = size / 2f;
+                float stroke = size / 12f;
+                hitPaint.setColor(hitColor);
+                hitPaint.setAlpha(alpha);
+                hitPaint.setStrokeWidth(stroke);
+                // the ring grows from the arrow to the cell edge
+                float radius = (half - stroke / 2) * (0.5f + 0.5f * progress);
+                canvas.drawCircle(lefts[i] + half, tops[i] + half, radius, hitPaint);
+            } else {
+                missPaint.setColor(missColor);
+                missPaint.setAlpha(alpha / 2);
+                canvas.drawRect(lefts[i], tops[i], lefts[i] + size, tops[i] + size, missPaint);
+            }
+        }
+    }
+}
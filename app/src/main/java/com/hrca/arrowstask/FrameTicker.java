@@ -0,0 +1,131 @@
+package com.hrca.arrowstask;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.view.Choreographer;
+
+/**
+ * Calls back once per display frame on the thread which created it while started.
+ * Uses {@link Choreographer} frame callbacks where available and a handler posting
+ * at the display rate on older platforms.
+ * Frame times are in the {@link System#nanoTime()} time base.
+ */
+class FrameTicker {
+    /**
+     * Interval of the fallback ticks in milliseconds.
+     */
+    private static final long FALLBACK_FRAME_MILLIS = 16;
+
+    /**
+     * Receiver of frame ticks.
+     */
+    interface Callback {
+        /**
+         * Called once per frame.
+         *
+         * @param frameTimeNanos Start of the frame in nanoseconds.
+         */
+        void onFrame(long frameTimeNanos);
+    }
+
+    /**
+     * Receiver of frame ticks.
+     */
+    private final Callback callback;
+    /**
+     * Frame callback on platforms with {@link Choreographer}, null otherwise.
+     */
+    private final Object frameCallback;
+    /**
+     * Handler posting fallback ticks, null if {@link Choreographer} is used.
+     */
+    private final Handler handler;
+    /**
+     * Fallback tick.
+     */
+    private final Runnable fallbackTick = new Runnable() {
+        @Override
+        public void run() {
+            if (!started)
+                return;
+            handler.postDelayed(this, FALLBACK_FRAME_MILLIS);
+            callback.onFrame(System.nanoTime());
+        }
+    };
+    /**
+     * Whether ticks are delivered.
+     */
+    private boolean started;
+
+    /**
+     * Must be created on a thread with a looper, usually the main thread.
+     *
+     * @param callback Receiver of frame ticks.
+     */
+    FrameTicker(Callback callback) {
+        this.callback = callback;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            frameCallback = createFrameCallback();
+            handler = null;
+        } else {
+            frameCallback = null;
+            handler = new Handler();
+        }
+    }
+
+    /**
+     * Creates the frame callback re-posting itself while started.
+     *
+     * @return Choreographer frame callback.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private Object createFrameCallback() {
+        return new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                if (!started)
+                    return;
+                Choreographer.getInstance().postFrameCallback(this);
+                callback.onFrame(frameTimeNanos);
+            }
+        };
+    }
+
+    /**
+     * Starts delivering ticks from the next frame. Does nothing if already started.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    void start() {
+        if (started)
+            return;
+        started = true;
+        if (frameCallback != null)
+            Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) frameCallback);
+        else
+            handler.post(fallbackTick);
+    }
+
+    /**
+     * Stops delivering ticks.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    void stop() {
+        if (!started)
+            return;
+        started = false;
+        if (frameCallback != null)
+            Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) frameCallback);
+        else
+            handler.removeCallbacks(fallbackTick);
+    }
+
+    /**
+     * Checks if ticks are delivered.
+     *
+     * @return True between start and stop.
+     */
+    boolean isStarted() {
+        return started;
+    }
+}
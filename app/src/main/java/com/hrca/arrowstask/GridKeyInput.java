@@ -0,0 +1,135 @@
+package com.hrca.arrowstask;
+
+import android.view.InputDevice;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+
+/**
+ * Maps keyboard, D-pad and gamepad input straight to a cursor over the grid cells.
+ * Arrow keys, WASD, the D-pad, the hat and the left stick of a gamepad move the cursor;
+ * Enter, Space, the D-pad center and the A button select the cell under it.
+ * Holding a direction repeats the move, holding a select key does not select again.
+ * Stick and hat positions are polled from motion events and only their changes move the cursor,
+ * nothing is allocated per event.
+ */
+class GridKeyInput {
+    /**
+     * Fraction of the full stick deflection counted as a direction.
+     */
+    private static final float STICK_THRESHOLD = 0.5f;
+
+    /**
+     * Receiver of cursor moves and selections.
+     */
+    interface Target {
+        /**
+         * Moves the cursor by one cell.
+         *
+         * @param rows    -1 for up, 1 for down, 0 to keep the row.
+         * @param columns -1 for left, 1 for right, 0 to keep the column.
+         */
+        void moveCursor(int rows, int columns);
+
+        /**
+         * Selects the cell under the cursor.
+         *
+         * @param eventTime Time of the input in the {@link android.os.SystemClock#uptimeMillis()} time base.
+         */
+        void selectCursor(long eventTime);
+    }
+
+    /**
+     * Receiver of cursor moves and selections.
+     */
+    private final Target target;
+    /**
+     * Last polled horizontal direction of the hat or stick.
+     */
+    private int horizontal;
+    /**
+     * Last polled vertical direction of the hat or stick.
+     */
+    private int vertical;
+
+    /**
+     * @param target Receiver of cursor moves and selections.
+     */
+    GridKeyInput(Target target) {
+        this.target = target;
+    }
+
+    /**
+     * Handles a key press, including repeats of a held key.
+     *
+     * @param keyCode Code of the key.
+     * @param event   The key event.
+     * @return True if the key moved the cursor or selected a cell.
+     */
+    boolean onKeyDown(int keyCode, KeyEvent event) {
+        switch (keyCode) {
+            case KeyEvent.KEYCODE_DPAD_UP:
+            case KeyEvent.KEYCODE_W:
+                target.moveCursor(-1, 0);
+                return true;
+            case KeyEvent.KEYCODE_DPAD_DOWN:
+            case KeyEvent.KEYCODE_S:
+                target.moveCursor(1, 0);
+                return true;
+            case KeyEvent.KEYCODE_DPAD_LEFT:
+            case KeyEvent.KEYCODE_A:
+                target.moveCursor(0, -1);
+                return true;
+            case KeyEvent.KEYCODE_DPAD_RIGHT:
+            case KeyEvent.KEYCODE_D:
+                target.moveCursor(0, 1);
+                return true;
+            case KeyEvent.KEYCODE_DPAD_CENTER:
+            case KeyEvent.KEYCODE_ENTER:
+            case KeyEvent.KEYCODE_NUMPAD_ENTER:
+            case KeyEvent.KEYCODE_SPACE:
+            case KeyEvent.KEYCODE_BUTTON_A:
+                // a held key selects once, every selection is a separate press like a tap
+                if (event.getRepeatCount() == 0)
+                    target.selectCursor(event.getEventTime());
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Handles hat and stick movement of a gamepad or joystick.
+     *
+     * @param event The motion event.
+     * @return True if the event came from a joystick.
+     */
+    boolean onGenericMotionEvent(MotionEvent event) {
+        if ((event.getSource() & InputDevice.SOURCE_JOYSTICK) != InputDevice.SOURCE_JOYSTICK
+                || event.getAction() != MotionEvent.ACTION_MOVE)
+            return false;
+        int x = direction(event.getAxisValue(MotionEvent.AXIS_HAT_X));
+        if (x == 0)
+            x = direction(event.getAxisValue(MotionEvent.AXIS_X));
+        int y = direction(event.getAxisValue(MotionEvent.AXIS_HAT_Y));
+        if (y == 0)
+            y = direction(event.getAxisValue(MotionEvent.AXIS_Y));
+        // moves only when a direction is newly pressed, not on every poll while it is held
+        if (x != horizontal && x != 0)
+            target.moveCursor(0, x);
+        if (y != vertical && y != 0)
+            target.moveCursor(y, 0);
+        horizontal = x;
+        vertical = y;
+        return true;
+    }
+
+    /**
+     * Converts an axis value to a direction.
+     *
+     * @param value Axis value from -1 to 1.
+     * @return -1, 0 or 1.
+     */
+    private static int direction(float value) {
+        return value <= -STICK_THRESHOLD ? -1 : value >= STICK_THRESHOLD ? 1 : 0;
+    }
+}
@@ -1,83 +1,91 @@
 package com.hrca.arrowstask;
 
-import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.app.AlertDialog;
 import android.content.DialogInterface;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
-import android.preference.PreferenceManager;
 import android.support.annotation.NonNull;
 import android.view.View;
 
 import com.google.android.gms.auth.api.signin.GoogleSignIn;
 import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
 import com.google.android.gms.auth.api.signin.GoogleSignInClient;
-import com.google.android.gms.auth.api.signin.GoogleSignInOptions;
 import com.google.android.gms.common.api.ApiException;
-import com.google.android.gms.games.Games;
-import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.android.gms.tasks.Task;
 
-public class MainActivity extends Activity {
+public class MainActivity extends Activity implements ScoreSync.SyncListener {
+    private static final String TAG = "MainActivity";
 
     public static final int REQUEST_CODE_TASK = 524;
     public static final int REQUEST_CODE_SIGN_IN_LEADERBOARD = 1478;
     public static final int REQUEST_CODE_SIGN_IN_SUBMIT = 1479;
     public static final int REQUEST_CODE_LEADERBOARD_UI = 9004;
-    public static final String SHARED_PREFERENCES_SCORE_COUNT = "n";
     public static final String PARCELABLE_SCORE_TO_DISPLAY_KEY = "score";
     public GoogleSignInAccount signedInAccount = null;
     public int scoreToDisplay = Integer.MIN_VALUE;
+    /**
+     * Time to first frame and time to interactive of this activity.
+     */
+    private StartupTrace startupTrace;
+    /**
+     * Whether the first frame was drawn and the main thread was idle since.
+     */
+    private boolean interactive;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        startupTrace = StartupTrace.start(TAG);
+        StartupTrace.beginSection("MainActivity.setContentView");
         setContentView(R.layout.activity_main);
+        StartupTrace.endSection();
+        startupTrace.watch(getWindow().getDecorView(), new Runnable() {
+            @Override
+            public void run() {
+                interactive = true;
+                startDeferredWork();
+            }
+        });
     }
 
     @Override
     protected void onResume() {
         super.onResume();
-        signedInAccount = GoogleSignIn.getLastSignedInAccount(this);
-        submitScores();
-        if (signedInAccount == null)
-            signInSilently();
+        ScoreSync sync = ScoreSync.getInstance(this);
+        signedInAccount = sync.getSignedInAccount();
+        sync.addSyncListener(this);
+        // the first sync waits until the menu is shown
+        if (interactive)
+            sync.sync();
         displayScore();
     }
 
     /**
-     * Returns configured sign in options.
-     * @return Google sign in options.
+     * Starts work which is not needed for the first frame:
+     * sign in, score sync and decoding of the task screen assets.
      */
-    private GoogleSignInOptions getSignInOptions() {
-        return new GoogleSignInOptions.Builder(GoogleSignInOptions.DEFAULT_GAMES_SIGN_IN)
-                .requestIdToken(getString(R.string.request_token))
-                .build();
+    private void startDeferredWork() {
+        ScoreSync.getInstance(this).sync();
+        ArrowAssets.preload(this);
     }
 
-    /**
-     * Tries to sign in without starting a new intent.
-     */
-    private void signInSilently() {
-        GoogleSignInClient signInClient = GoogleSignIn.getClient(this,
-                getSignInOptions());
-        signInClient.silentSignIn().addOnCompleteListener(this,
-                new OnCompleteListener<GoogleSignInAccount>() {
-                    @Override
-                    public void onComplete(@NonNull Task<GoogleSignInAccount> task) {
-                        if (task.isSuccessful()) {
-                            // The signed in account is stored in the task's result.
-                            signedInAccount = task.getResult();
-                            submitScores();
-                        } else {
-                            // Player will need to sign-in explicitly using via UI
-                        }
-                    }
-                });
+    @Override
+    protected void onPause() {
+        super.onPause();
+        ScoreSync.getInstance(this).removeSyncListener(this);
+    }
+
+    @Override
+    public void onSyncFinished(GoogleSignInAccount account) {
+        signedInAccount = account;
+    }
+
+    @Override
+    public void onScoreRecorded(ScoreSync.LocalStanding standing) {
+        displayScore();
     }
 
     /**
@@ -87,18 +95,20 @@ public class MainActivity extends Activity {
      */
     private void startSignInIntent(int requestCode) {
         GoogleSignInClient signInClient = GoogleSignIn.getClient(this,
-                getSignInOptions());
+                ScoreSync.getInstance(this).getSignInOptions());
         Intent intent = signInClient.getSignInIntent();
         startActivityForResult(intent, requestCode);
     }
 
     /**
      * Starts the Task Activity for result.
+     * The task is drawn on a dedicated render thread if the render_thread resource is set.
      *
      * @param v View which caused this method to b invoked.
      */
     public void startTask(View v) {
-        Intent intent = new Intent(this, TaskActivity.class);
+        Intent intent = new Intent(this, getResources().getBoolean(R.bool.render_thread)
+                ? SurfaceTaskActivity.class : TaskActivity.class);
         startActivityForResult(intent, REQUEST_CODE_TASK);
     }
 
@@ -111,7 +121,7 @@ public class MainActivity extends Activity {
         if (signedInAccount == null) {
             startSignInIntent(REQUEST_CODE_SIGN_IN_LEADERBOARD);
         } else {
-            Games.getLeaderboardsClient(this, signedInAccount)
+            ScoreSync.getInstance(this).getLeaderboardsClient()
                     .getLeaderboardIntent(getString(R.string.leaderboard_id))
                     .addOnSuccessListener(new OnSuccessListener<Intent>() {
                         @Override
@@ -137,6 +147,7 @@ public class MainActivity extends Activity {
             try {
                 // The signed in account is stored in the result.
                 signedInAccount = task.getResult(ApiException.class);
+                ScoreSync.getInstance(this).setSignedInAccount(signedInAccount);
                 if (requestCode == REQUEST_CODE_SIGN_IN_LEADERBOARD) {
                     displayLeaderBoard(null);
                 }
@@ -153,8 +164,9 @@ public class MainActivity extends Activity {
             // Make sure the request was successful
             if (resultCode == RESULT_OK) {
                 // The user completed the task
-                int hits = data.getIntExtra(TaskActivity.PARCELABLE_HITS_KEY, 0);
-                queueScore(hits);
+                queueScore(data.getIntExtra(TaskActivity.PARCELABLE_HITS_KEY, 0),
+                        data.getBundleExtra(TaskActivity.PARCELABLE_METRICS_KEY),
+                        data.getByteArrayExtra(TaskActivity.PARCELABLE_LOG_KEY));
             }
         }
     }
@@ -162,56 +174,26 @@ public class MainActivity extends Activity {
     /**
      * Queues a score for submission.
      *
-     * @param score Score to queue.
+     * @param score   Score to queue.
+     * @param metrics Input latency and frame timing of the session as a bundle or null.
+     * @param log     Encoded session log or null.
      */
-    @SuppressLint("CommitPrefEdits")
-    public void queueScore(int score) {
-        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(this);
-        // get number of stored scores
-        int count = sp.getInt(SHARED_PREFERENCES_SCORE_COUNT, 0);
-
-        SharedPreferences.Editor editor = sp.edit();
-        // add score
-        editor.putInt("score" + count, score);
-        // increment number of stored scores.
-        editor.putInt(SHARED_PREFERENCES_SCORE_COUNT, count + 1);
-
-        editor.commit();
+    public void queueScore(int score, Bundle metrics, byte[] log) {
+        ScoreSync.getInstance(this).queue(score, metrics, log);
 
         scoreToDisplay = score;
     }
 
     /**
-     * Submits queued scores and dequeues them if successful.
-     */
-    public void submitScores() {
-        if (signedInAccount == null)
-            return;
-        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(this);
-        // get number of stored scores
-        int count = sp.getInt(SHARED_PREFERENCES_SCORE_COUNT, 0);
-
-        // submit scores
-        SharedPreferences.Editor editor = sp.edit();
-        for (int scoreIndex = 0; scoreIndex < count; scoreIndex++) {
-            Games.getLeaderboardsClient(this, signedInAccount)
-                    .submitScore(getString(R.string.leaderboard_id), sp.getInt("score" + scoreIndex, 0));
-            editor.remove("score" + scoreIndex);
-        }
-        // reset number of stored scores.
-        editor.putInt(SHARED_PREFERENCES_SCORE_COUNT, 0);
-
-        editor.apply();
-    }
-
-    /**
-     * Displays score to be displayed if any.
+     * Displays score to be displayed if any, once it is recorded in the local leaderboard.
      *
      * @return True if score was displayed.
      */
     public boolean displayScore() {
-        if (scoreToDisplay != Integer.MIN_VALUE) {
-            new AlertDialog.Builder(this).setMessage(String.valueOf(scoreToDisplay))
+        ScoreSync sync = ScoreSync.getInstance(this);
+        // the place among local runs is known only after the score is recorded in the background
+        if (scoreToDisplay != Integer.MIN_VALUE && !sync.isRecording()) {
+            new AlertDialog.Builder(this).setMessage(formatScore(scoreToDisplay, sync.getLastStanding()))
                     .setNeutralButton(android.R.string.ok, new DialogInterface.OnClickListener() {
                         @Override
                         public void onClick(DialogInterface dialogInterface, int i) {
@@ -227,6 +209,20 @@ public class MainActivity extends Activity {
         return false;
     }
 
+    /**
+     * Formats a score with the personal best and its place among local runs.
+     *
+     * @param score    Score to format.
+     * @param standing Place of the last recorded score or null if unknown.
+     * @return Formatted score.
+     */
+    private String formatScore(int score, ScoreSync.LocalStanding standing) {
+        if (standing == null || standing.score != score || standing.total == 0)
+            return String.valueOf(score);
+        return score + "\n" + getString(R.string.personal_best, standing.best) + "\n"
+                + getString(R.string.local_rank, standing.rank, standing.total, standing.percentile);
+    }
+
     @Override
     public void onSaveInstanceState(@NonNull Bundle savedInstanceState) {
         if (scoreToDisplay != Integer.MIN_VALUE)
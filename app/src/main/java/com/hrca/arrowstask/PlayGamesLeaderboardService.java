@@ -0,0 +1,43 @@
+package com.hrca.arrowstask;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import com.google.android.gms.games.LeaderboardsClient;
+import com.google.android.gms.games.leaderboard.ScoreSubmissionData;
+import com.google.android.gms.tasks.OnCompleteListener;
+import com.google.android.gms.tasks.Task;
+
+/**
+ * Leaderboard service backed by Play Games leaderboards of a signed in player.
+ */
+public class PlayGamesLeaderboardService implements LeaderboardService {
+    private static final String TAG = "PlayGamesLeaderboard";
+    /**
+     * Client of the signed in player.
+     */
+    private final LeaderboardsClient client;
+
+    /**
+     * @param client Client of the signed in player.
+     */
+    public PlayGamesLeaderboardService(LeaderboardsClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public void submitScore(String leaderboardId, long score, final Callback callback) {
+        client.submitScoreImmediate(leaderboardId, score)
+                .addOnCompleteListener(new OnCompleteListener<ScoreSubmissionData>() {
+                    @Override
+                    public void onComplete(@NonNull Task<ScoreSubmissionData> task) {
+                        if (task.isSuccessful()) {
+                            callback.onSuccess();
+                        } else {
+                            Log.w(TAG, "Score submission failed.", task.getException());
+                            callback.onFailure(task.getException());
+                        }
+                    }
+                });
+    }
+}
@@ -0,0 +1,522 @@
+package com.hrca.arrowstask;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.drawable.Drawable;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.view.SurfaceHolder;
+
+/**
+ * Thread owning the game state of an arrows task and drawing the board, countdown and score into a surface.
+ * The main thread only offers taps through a lock-free {@link TapQueue} and forwards lifecycle and surface changes,
+ * so dialogs or Play Games callbacks keeping the main thread busy do not delay frames.
+ * Taps are resolved and the whole surface is redrawn once per display frame, and only when something changed.
+ */
+class RenderThread extends HandlerThread implements FrameTicker.Callback, TapQueue.Consumer {
+    /**
+     * Nanoseconds in a millisecond.
+     */
+    private static final long NANOS_PER_MILLI = 1000000L;
+    /**
+     * Nanoseconds in a tenth of a second.
+     */
+    private static final long NANOS_PER_TENTH = 100 * NANOS_PER_MILLI;
+    /**
+     * Length of the buffers of drawn numbers, enough for any long with a sign and a decimal point.
+     */
+    static final int TEXT_CAPACITY = 21;
+    /**
+     * Color of the surface behind the board.
+     */
+    private static final int BACKGROUND_COLOR = Color.WHITE;
+    /**
+     * Color of the countdown and score.
+     */
+    private static final int TEXT_COLOR = Color.BLACK;
+
+    /**
+     * Receiver of finished rounds, called on the main thread.
+     */
+    interface Listener {
+        /**
+         * Called once the deadline of a round passed.
+         *
+         * @param score   Number of hits minus number of misses.
+         * @param metrics Input latency and frame timing of the round, exported by {@link SessionMetrics#toBundle()}.
+         * @param log     Encoded session log.
+         */
+        void onRoundFinished(int score, Bundle metrics, byte[] log);
+    }
+
+    /**
+     * Taps offered by the main thread.
+     */
+    private final TapQueue taps = new TapQueue();
+    /**
+     * Guards the surface, held by the render thread while drawing.
+     */
+    private final Object surfaceLock = new Object();
+    /**
+     * Surface to draw into or null if there is none.
+     */
+    private SurfaceHolder holder;
+    /**
+     * Width of the surface.
+     */
+    private int surfaceWidth;
+    /**
+     * Height of the surface.
+     */
+    private int surfaceHeight;
+    /**
+     * Whether the surface changed since the last frame.
+     */
+    private boolean surfaceChanged;
+
+    /**
+     * Handler of the main thread.
+     */
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    /**
+     * Handler of this thread, used by the main thread.
+     */
+    private Handler handler;
+    /**
+     * Receiver of finished rounds, used by the main thread.
+     */
+    private Listener listener;
+    /**
+     * Encoded log of the finished round not followed by another one yet or null, used by the main thread.
+     */
+    private byte[] finishedLog;
+    /**
+     * Score of the finished round, used by the main thread.
+     */
+    private int finishedScore;
+    /**
+     * Metrics of the finished round, used by the main thread.
+     */
+    private Bundle finishedMetrics;
+
+    /**
+     * Drawables of the arrows, indexed by arrow.
+     */
+    private final Drawable[] drawables;
+    /**
+     * Number of rows and columns of the grid.
+     */
+    private final int gridSize;
+    /**
+     * Largest space between two neighbouring cells, reduced for large grids.
+     */
+    private final int cellSpacing;
+    /**
+     * Total duration of a round in nanoseconds.
+     */
+    private final long duration;
+    /**
+     * Paint of the countdown and score.
+     */
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    /**
+     * Height of the area with the countdown and score above the grid.
+     */
+    private final int headerHeight;
+
+    /**
+     * Delivers frames of this thread, created once its looper is prepared.
+     */
+    private FrameTicker ticker;
+    /**
+     * Rules, board, score and countdown of the current round.
+     */
+    private TaskSession session;
+    /**
+     * Board sequences and taps of the current round.
+     */
+    private final SessionLog log = new SessionLog();
+    /**
+     * Input latency and frame timing of the current round.
+     */
+    private final SessionMetrics metrics = new SessionMetrics();
+    /**
+     * Cell positions within the surface.
+     */
+    private final GridGeometry geometry = new GridGeometry();
+    /**
+     * Arrows rasterized at the cell size.
+     */
+    private final ArrowAtlas atlas = new ArrowAtlas();
+    /**
+     * Hit and miss effects over the cells.
+     */
+    private final EffectPool effects = new EffectPool(EffectPool.DEFAULT_CAPACITY);
+    /**
+     * Whether the finish of the current round was reported.
+     */
+    private boolean roundReported;
+    /**
+     * Whether the surface must be redrawn.
+     */
+    private boolean dirty = true;
+    /**
+     * Remaining time currently drawn in tenths of a second.
+     */
+    private long displayedTenths = -1;
+    /**
+     * Score currently drawn.
+     */
+    private int displayedScore = Integer.MIN_VALUE;
+    /**
+     * Characters of the drawn remaining time, written at the end of the buffer.
+     */
+    private final char[] timeText = new char[TEXT_CAPACITY];
+    /**
+     * Index of the first character of the drawn remaining time.
+     */
+    private int timeTextStart = TEXT_CAPACITY;
+    /**
+     * Characters of the drawn score, written at the end of the buffer.
+     */
+    private final char[] scoreText = new char[TEXT_CAPACITY];
+    /**
+     * Index of the first character of the drawn score.
+     */
+    private int scoreTextStart = TEXT_CAPACITY;
+
+    /**
+     * Starts the countdown where it was paused and delivers frames.
+     */
+    private final Runnable resume = new Runnable() {
+        @Override
+        public void run() {
+            session.resume(System.nanoTime());
+            dirty = true;
+            ticker.start();
+        }
+    };
+    /**
+     * Pauses the countdown and stops frames.
+     */
+    private final Runnable pause = new Runnable() {
+        @Override
+        public void run() {
+            session.pause(System.nanoTime());
+            ticker.stop();
+        }
+    };
+    /**
+     * Draws a frame outside of the ticks, e.g. for a new surface while paused.
+     */
+    private final Runnable drawFrame = new Runnable() {
+        @Override
+        public void run() {
+            onFrame(System.nanoTime());
+        }
+    };
+    /**
+     * Starts a new round with a new board sequence.
+     */
+    private final Runnable nextRound = new Runnable() {
+        @Override
+        public void run() {
+            taps.clear();
+            effects.clear();
+            metrics.reset();
+            log.clear();
+            newSession(System.nanoTime());
+            dirty = true;
+            onFrame(System.nanoTime());
+        }
+    };
+    /**
+     * Stops frames, releases the atlas and ends the thread.
+     */
+    private final Runnable release = new Runnable() {
+        @Override
+        public void run() {
+            ticker.stop();
+            atlas.release();
+            quit();
+        }
+    };
+
+    /**
+     * Must be created on the main thread.
+     *
+     * @param context  Context of the task screen.
+     * @param gridSize Number of rows and columns of the grid.
+     * @param duration Total duration of a round in nanoseconds.
+     */
+    RenderThread(Context context, int gridSize, long duration) {
+        super("RenderThread", Process.THREAD_PRIORITY_DISPLAY);
+        Resources resources = context.getResources();
+        drawables = new Drawable[ArrowAssets.DEFAULT_DRAWABLES.length];
+        for (int i = 0; i < drawables.length; i++) {
+            drawables[i] = ArrowAssets.get(resources, ArrowAssets.DEFAULT_DRAWABLES[i], context.getTheme());
+        }
+        this.gridSize = gridSize;
+        this.cellSpacing = resources.getDimensionPixelSize(R.dimen.cell_spacing);
+        this.duration = duration;
+        textPaint.setColor(TEXT_COLOR);
+        textPaint.setTextSize(resources.getDimension(R.dimen.stat_text_size));
+        textPaint.setTextAlign(Paint.Align.CENTER);
+        textPaint.setFakeBoldText(true);
+        headerHeight = (int) (2 * (textPaint.descent() - textPaint.ascent()));
+        effects.setColors(ArrowsView.DEFAULT_HIT_COLOR, ArrowsView.DEFAULT_MISS_COLOR);
+        newSession(System.nanoTime());
+    }
+
+    /**
+     * Creates the session of a new round and attaches the log to it.
+     *
+     * @param seed Seed of the board sequence.
+     */
+    private void newSession(long seed) {
+        session = new TaskSession(new BoardSequence(gridSize, seed), duration);
+        session.setLog(log);
+        roundReported = false;
+    }
+
+    @Override
+    public synchronized void start() {
+        super.start();
+        handler = new Handler(getLooper());
+    }
+
+    @Override
+    protected void onLooperPrepared() {
+        ticker = new FrameTicker(this);
+    }
+
+    /**
+     * Sets the receiver of finished rounds. A round which finished before is reported to it immediately.
+     * Must be called on the main thread.
+     *
+     * @param listener The receiver or null.
+     */
+    void setListener(Listener listener) {
+        this.listener = listener;
+        if (listener != null && finishedLog != null)
+            listener.onRoundFinished(finishedScore, finishedMetrics, finishedLog);
+    }
+
+    /**
+     * Sets the surface to draw into. Must be called on the main thread.
+     *
+     * @param holder Holder of the surface.
+     * @param width  Width of the surface.
+     * @param height Height of the surface.
+     */
+    void setSurface(SurfaceHolder holder, int width, int height) {
+        synchronized (surfaceLock) {
+            this.holder = holder;
+            surfaceWidth = width;
+            surfaceHeight = height;
+            surfaceChanged = true;
+        }
+        handler.post(drawFrame);
+    }
+
+    /**
+     * Stops drawing into a surface, waiting until the current frame is drawn. Must be called on the main thread.
+     *
+     * @param holder Holder of the destroyed surface, ignored if another surface was set since.
+     */
+    void clearSurface(SurfaceHolder holder) {
+        synchronized (surfaceLock) {
+            if (this.holder == holder)
+                this.holder = null;
+        }
+    }
+
+    /**
+     * Offers a tap to the render thread. Must be called on the main thread.
+     *
+     * @param x    Horizontal position of the tap in the surface.
+     * @param y    Vertical position of the tap in the surface.
+     * @param time Time of the tap in nanoseconds.
+     */
+    void offerTap(float x, float y, long time) {
+        // a full queue means the render thread is stalled for many frames, such taps are dropped
+        taps.offer(x, y, time);
+    }
+
+    /**
+     * Continues the countdown if the round started and starts delivering frames. Must be called on the main thread.
+     */
+    void resumeTask() {
+        handler.post(resume);
+    }
+
+    /**
+     * Pauses the countdown and stops delivering frames. Must be called on the main thread.
+     */
+    void pauseTask() {
+        handler.post(pause);
+    }
+
+    /**
+     * Starts another round after the current one finished. Must be called on the main thread.
+     */
+    void startNextRound() {
+        finishedLog = null;
+        finishedMetrics = null;
+        handler.post(nextRound);
+    }
+
+    /**
+     * Ends the thread once pending work is done. Must be called on the main thread.
+     */
+    void quitTask() {
+        listener = null;
+        handler.post(release);
+    }
+
+    @Override
+    public void onFrame(long frameTimeNanos) {
+        // taps made before the deadline was checked still count
+        taps.drain(this);
+        if (session.update(frameTimeNanos) && !roundReported) {
+            roundReported = true;
+            reportRound();
+        }
+        draw(frameTimeNanos);
+    }
+
+    @Override
+    public void onTap(float x, float y, long time) {
+        if (geometry.getCellSize() <= 0 || session.update(time))
+            return;
+        int cell = geometry.cellAt(x, y);
+        if (cell < 0)
+            return;
+        metrics.onTouchDown(time / NANOS_PER_MILLI);
+        boolean hit = session.tap(cell, time);
+        if (hit)
+            metrics.onBoardGenerated();
+        metrics.onClicksDispatched();
+        effects.spawn(hit ? EffectPool.HIT : EffectPool.MISS, geometry.getCellLeft(cell),
+                geometry.getCellTop(cell), geometry.getCellSize(), time);
+        dirty = true;
+    }
+
+    /**
+     * Hands the result of the finished round over to the main thread.
+     */
+    private void reportRound() {
+        final int score = session.getResult();
+        final Bundle metricsBundle = metrics.toBundle();
+        final byte[] logBytes = log.toByteArray();
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                finishedScore = score;
+                finishedMetrics = metricsBundle;
+                finishedLog = logBytes;
+                if (listener != null)
+                    listener.onRoundFinished(score, metricsBundle, logBytes);
+            }
+        });
+    }
+
+    /**
+     * Redraws the surface if anything changed since the last drawn frame.
+     *
+     * @param frameTimeNanos Start of the frame in nanoseconds.
+     */
+    private void draw(long frameTimeNanos) {
+        // a frame after the last effect finished erases it
+        if (effects.getCount() > 0) {
+            effects.step(frameTimeNanos, null);
+            dirty = true;
+        }
+        // round up so the display reaches zero exactly when the round ends
+        long tenths = (session.getRemaining(frameTimeNanos) + NANOS_PER_TENTH - 1) / NANOS_PER_TENTH;
+        if (tenths != displayedTenths) {
+            displayedTenths = tenths;
+            timeTextStart = formatNumber(tenths, 1, timeText);
+            dirty = true;
+        }
+        int score = session.getResult();
+        if (score != displayedScore) {
+            displayedScore = score;
+            scoreTextStart = formatNumber(score, 0, scoreText);
+            dirty = true;
+        }
+        synchronized (surfaceLock) {
+            if (holder == null)
+                return;
+            if (surfaceChanged) {
+                surfaceChanged = false;
+                // effects are positioned by the old layout
+                effects.clear();
+                geometry.layout(gridSize, cellSpacing, 0, headerHeight, surfaceWidth, surfaceHeight - headerHeight);
+                dirty = true;
+            }
+            if (!dirty || geometry.getCellSize() <= 0)
+                return;
+            if (!atlas.isValid(geometry.getCellSize()))
+                atlas.build(geometry.getCellSize(), drawables);
+            Canvas canvas = holder.lockCanvas();
+            if (canvas == null)
+                return;
+            try {
+                drawContent(canvas);
+            } finally {
+                holder.unlockCanvasAndPost(canvas);
+            }
+        }
+        dirty = false;
+        metrics.onFrameDrawn(frameTimeNanos / NANOS_PER_MILLI);
+    }
+
+    /**
+     * Writes a decimal number at the end of a buffer without allocating.
+     *
+     * @param value          The number, in units of the last fraction digit.
+     * @param fractionDigits Number of digits after the decimal point.
+     * @param buffer         Buffer of {@link #TEXT_CAPACITY} characters.
+     * @return Index of the first written character.
+     */
+    static int formatNumber(long value, int fractionDigits, char[] buffer) {
+        int index = buffer.length;
+        // digits come from the negative value, which also holds Long.MIN_VALUE
+        long remaining = value < 0 ? value : -value;
+        for (int digit = 0; digit <= fractionDigits || remaining != 0; digit++) {
+            if (digit == fractionDigits && digit > 0)
+                buffer[--index] = '.';
+            buffer[--index] = (char) ('0' - remaining % 10);
+            remaining /= 10;
+        }
+        if (value < 0)
+            buffer[--index] = '-';
+        return index;
+    }
+
+    /**
+     * Draws the score, countdown, board and effects over the whole surface.
+     *
+     * @param canvas Canvas of the surface.
+     */
+    private void drawContent(Canvas canvas) {
+        canvas.drawColor(BACKGROUND_COLOR);
+        float baseline = (headerHeight - textPaint.ascent() - textPaint.descent()) / 2;
+        canvas.drawText(scoreText, scoreTextStart, TEXT_CAPACITY - scoreTextStart, surfaceWidth / 4f, baseline,
+                textPaint);
+        canvas.drawText(timeText, timeTextStart, TEXT_CAPACITY - timeTextStart, surfaceWidth * 3 / 4f, baseline,
+                textPaint);
+        ArrowBoard board = session.getBoard();
+        for (int i = 0, count = gridSize * gridSize; i < count; i++) {
+            atlas.draw(canvas, board.get(i), geometry.getCellLeft(i), geometry.getCellTop(i));
+        }
+        effects.draw(canvas);
+    }
+}
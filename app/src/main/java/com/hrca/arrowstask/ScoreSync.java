@@ -0,0 +1,514 @@
+package com.hrca.arrowstask;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.preference.PreferenceManager;
+import android.util.Log;
+
+import com.google.android.gms.auth.api.signin.GoogleSignIn;
+import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
+import com.google.android.gms.auth.api.signin.GoogleSignInOptions;
+import com.google.android.gms.games.Games;
+import com.google.android.gms.games.LeaderboardsClient;
+import com.google.android.gms.tasks.Tasks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Process wide engine synchronizing scores with the leaderboard.
+ * Queued scores are compacted into the best unsent score in {@link ScoreWindows},
+ * which also keeps the sync cursors of the leaderboard windows, so a reconnect after playing offline for weeks submits at most one score.
+ * Disk access, sign in and submission run on a single
+ * background thread, so neither queueing a score nor starting a sync blocks the calling thread.
+ * The signed in account and its leaderboards client are cached for the lifetime of the process
+ * and sync requests made while one is waiting to run are merged into it.
+ */
+public class ScoreSync {
+    private static final String TAG = "ScoreSync";
+    /**
+     * Maximum time to wait for a silent sign in in seconds.
+     */
+    private static final long SILENT_SIGN_IN_TIMEOUT = 30;
+    /**
+     * Name of the score windows file in the application files directory.
+     */
+    public static final String WINDOWS_FILE_NAME = "scores.windows";
+    /**
+     * Name of the local leaderboard file in the application files directory.
+     */
+    public static final String LOCAL_LEADERBOARD_FILE_NAME = "scores.local";
+    /**
+     * Shared preferences key of the number of scores queued by older versions.
+     */
+    private static final String LEGACY_SCORE_COUNT_KEY = "n";
+    /**
+     * Shared preferences key prefix of scores queued by older versions.
+     */
+    private static final String LEGACY_SCORE_KEY_PREFIX = "score";
+
+    /**
+     * Listener notified when a sync finishes or a queued score was recorded.
+     */
+    public interface SyncListener {
+        /**
+         * Called on the main thread after a sync finished.
+         *
+         * @param account Signed in account or null if the player is not signed in.
+         */
+        void onSyncFinished(GoogleSignInAccount account);
+
+        /**
+         * Called on the main thread after a queued score was recorded in the local leaderboard.
+         *
+         * @param standing Place of the score among local runs or null if the local leaderboard cannot be opened.
+         */
+        void onScoreRecorded(LocalStanding standing);
+    }
+
+    /**
+     * Place of a recorded score among the player's local runs.
+     */
+    public static class LocalStanding {
+        /**
+         * The recorded score.
+         */
+        public final int score;
+        /**
+         * Personal best including the score.
+         */
+        public final int best;
+        /**
+         * One plus the number of runs with a higher score.
+         */
+        public final long rank;
+        /**
+         * Number of recorded runs.
+         */
+        public final long total;
+        /**
+         * Percentage of runs scoring at most the score.
+         */
+        public final double percentile;
+
+        /**
+         * @param leaderboard Local leaderboard the score was recorded in.
+         * @param score       The recorded score.
+         */
+        LocalStanding(LocalLeaderboard leaderboard, int score) {
+            this.score = score;
+            best = leaderboard.getBest();
+            rank = leaderboard.getRank(score);
+            total = leaderboard.getTotal();
+            percentile = leaderboard.getPercentile(score);
+        }
+    }
+
+    private static ScoreSync instance;
+
+    /**
+     * Application context.
+     */
+    private final Context context;
+    /**
+     * Thread running all score windows operations, submissions and their retries.
+     */
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    /**
+     * Opened score windows or null if they were not opened yet. Accessed only from the executor.
+     */
+    private ScoreWindows windows;
+    /**
+     * Submitter of the best scores or null if the score windows were not opened yet. Accessed only from the executor.
+     */
+    private ScoreSubmitter submitter;
+    /**
+     * Best score queued while the score windows could not be opened or {@link ScoreWindows#NONE}.
+     * Accessed only from the executor.
+     */
+    private int unrecordedScore = ScoreWindows.NONE;
+    /**
+     * Time {@link #unrecordedScore} was achieved in milliseconds since epoch. Accessed only from the executor.
+     */
+    private long unrecordedTime;
+    /**
+     * Opened local leaderboard or null if it was not opened yet. Accessed only from the executor.
+     */
+    private LocalLeaderboard localLeaderboard;
+    /**
+     * Whether opening the local leaderboard failed. Accessed only from the executor.
+     */
+    private boolean localLeaderboardFailed;
+    /**
+     * Number of queued scores not yet recorded in the local leaderboard. Accessed only from the main thread.
+     */
+    private int recordingScores;
+    /**
+     * Place of the last recorded score or null if none was recorded. Accessed only from the main thread.
+     */
+    private LocalStanding lastStanding;
+    /**
+     * Handler of the main thread, used to notify listeners.
+     */
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    /**
+     * Listeners notified when a sync finishes. Accessed only from the main thread.
+     */
+    private final List<SyncListener> listeners = new ArrayList<SyncListener>();
+    /**
+     * Leaderboard scores are submitted to.
+     */
+    private final String leaderboardId;
+    /**
+     * Whether a sync is waiting to run.
+     */
+    private final AtomicBoolean syncRequested = new AtomicBoolean();
+    /**
+     * Whether the last signed in account was already loaded. Accessed only from the executor.
+     */
+    private boolean accountLoaded;
+    /**
+     * Signed in account or null if the player is not signed in.
+     */
+    private GoogleSignInAccount account;
+    /**
+     * Leaderboards client of the signed in account or null if the player is not signed in.
+     */
+    private LeaderboardsClient client;
+    /**
+     * Leaderboard service backed by {@link #client} or null if the player is not signed in.
+     */
+    private LeaderboardService service;
+
+    private ScoreSync(Context context) {
+        this.context = context.getApplicationContext();
+        leaderboardId = this.context.getString(R.string.leaderboard_id);
+    }
+
+    /**
+     * Gets the process wide score sync.
+     *
+     * @param context Any context of the application.
+     * @return The score sync.
+     */
+    public static synchronized ScoreSync getInstance(Context context) {
+        if (instance == null)
+            instance = new ScoreSync(context);
+        return instance;
+    }
+
+    /**
+     * Returns configured sign in options.
+     *
+     * @return Google sign in options.
+     */
+    public GoogleSignInOptions getSignInOptions() {
+        return new GoogleSignInOptions.Builder(GoogleSignInOptions.DEFAULT_GAMES_SIGN_IN)
+                .requestIdToken(context.getString(R.string.request_token))
+                .build();
+    }
+
+    /**
+     * Gets the cached signed in account.
+     * Does not block, the account is known only after the first sync.
+     *
+     * @return Signed in account or null if the player is not signed in or no sync finished yet.
+     */
+    public synchronized GoogleSignInAccount getSignedInAccount() {
+        return account;
+    }
+
+    /**
+     * Gets the cached leaderboards client of the signed in account.
+     *
+     * @return Leaderboards client or null if the player is not signed in.
+     */
+    public synchronized LeaderboardsClient getLeaderboardsClient() {
+        return client;
+    }
+
+    /**
+     * Sets the signed in account, creating its leaderboards client if the account changed.
+     *
+     * @param account Signed in account or null if the player signed out.
+     * @return Leaderboard service of the account or null.
+     */
+    private synchronized LeaderboardService setAccount(GoogleSignInAccount account) {
+        if (account == null) {
+            client = null;
+            service = null;
+        } else if (client == null || !account.equals(this.account)) {
+            client = Games.getLeaderboardsClient(context, account);
+            service = new PlayGamesLeaderboardService(client);
+        }
+        this.account = account;
+        return service;
+    }
+
+    /**
+     * Sets the account the player explicitly signed in with and syncs scores.
+     *
+     * @param account Signed in account.
+     */
+    public void setSignedInAccount(GoogleSignInAccount account) {
+        setAccount(account);
+        sync();
+    }
+
+    /**
+     * Adds a listener notified when a sync finishes. Must be called from the main thread.
+     *
+     * @param listener Listener to add.
+     */
+    public void addSyncListener(SyncListener listener) {
+        if (!listeners.contains(listener))
+            listeners.add(listener);
+    }
+
+    /**
+     * Removes a sync listener. Must be called from the main thread.
+     *
+     * @param listener Listener to remove.
+     */
+    public void removeSyncListener(SyncListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Gets the score windows, opening them on first use and recording scores queued by older versions
+     * or while they could not be opened. Must be called from the executor.
+     *
+     * @return Opened score windows.
+     * @throws IOException If the score windows cannot be opened.
+     */
+    private ScoreWindows getWindows() throws IOException {
+        if (windows == null) {
+            windows = new ScoreWindows(new File(context.getFilesDir(), WINDOWS_FILE_NAME));
+            if (unrecordedScore != ScoreWindows.NONE) {
+                windows.record(unrecordedTime, unrecordedScore);
+                windows.flush();
+                unrecordedScore = ScoreWindows.NONE;
+            }
+            migrateLegacyScores(windows);
+            submitter = new ScoreSubmitter(windows, executor);
+        }
+        return windows;
+    }
+
+    /**
+     * Gets the on-device history of scores, mapping its file on first use. Must be called from the executor.
+     *
+     * @return Local leaderboard or null if it cannot be opened.
+     */
+    private LocalLeaderboard getLocalLeaderboard() {
+        if (localLeaderboard == null && !localLeaderboardFailed) {
+            try {
+                localLeaderboard = new LocalLeaderboard(new File(context.getFilesDir(), LOCAL_LEADERBOARD_FILE_NAME));
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to open local leaderboard.", e);
+                localLeaderboardFailed = true;
+            }
+        }
+        return localLeaderboard;
+    }
+
+    /**
+     * Moves scores queued in shared preferences by older versions into the score windows.
+     *
+     * @param windows Score windows to move scores to.
+     */
+    @SuppressLint("CommitPrefEdits")
+    private void migrateLegacyScores(ScoreWindows windows) {
+        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
+        int count = sp.getInt(LEGACY_SCORE_COUNT_KEY, 0);
+        if (count == 0)
+            return;
+        SharedPreferences.Editor editor = sp.edit();
+        long now = System.currentTimeMillis();
+        for (int scoreIndex = 0; scoreIndex < count; scoreIndex++) {
+            windows.record(now, sp.getInt(LEGACY_SCORE_KEY_PREFIX + scoreIndex, 0));
+            editor.remove(LEGACY_SCORE_KEY_PREFIX + scoreIndex);
+        }
+        editor.remove(LEGACY_SCORE_COUNT_KEY);
+        // scores are already in the windows, a lost commit would only record them again
+        windows.flush();
+        editor.commit();
+    }
+
+    /**
+     * Records a score in the local leaderboard and queues it for submission in the background.
+     * Listeners get the place of the score among local runs once it is recorded,
+     * see {@link SyncListener#onScoreRecorded(LocalStanding)}.
+     * Timing of the session is logged in the background too, debug builds also replay its log there.
+     * Must be called from the main thread.
+     *
+     * @param score   Score to queue.
+     * @param metrics Input latency and frame timing of the session as a bundle or null.
+     * @param log     Encoded session log or null.
+     */
+    public void queue(final int score, final Bundle metrics, final byte[] log) {
+        final long time = System.currentTimeMillis();
+        recordingScores++;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // mapping the file and updating its counts stay off the main thread
+                LocalLeaderboard leaderboard = getLocalLeaderboard();
+                final LocalStanding standing;
+                if (leaderboard != null) {
+                    leaderboard.record(time, score);
+                    standing = new LocalStanding(leaderboard, score);
+                } else {
+                    standing = null;
+                }
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        recordingScores--;
+                        lastStanding = standing;
+                        for (int listenerIndex = listeners.size() - 1; listenerIndex >= 0; listenerIndex--) {
+                            listeners.get(listenerIndex).onScoreRecorded(standing);
+                        }
+                    }
+                });
+                try {
+                    ScoreWindows windows = getWindows();
+                    windows.record(time, score);
+                    windows.flush();
+                } catch (IOException e) {
+                    // the windows keep only the best score, so keeping it in memory loses nothing until they open
+                    Log.e(TAG, "Failed to open score windows, keeping score in memory.", e);
+                    if (score > unrecordedScore) {
+                        unrecordedScore = score;
+                        unrecordedTime = time;
+                    }
+                }
+                if (leaderboard != null)
+                    leaderboard.flush();
+                reportSession(score, metrics, log);
+            }
+        });
+    }
+
+    /**
+     * Checks if queued scores are still being recorded in the local leaderboard.
+     * Must be called from the main thread.
+     *
+     * @return True until listeners were notified of every queued score.
+     */
+    public boolean isRecording() {
+        return recordingScores > 0;
+    }
+
+    /**
+     * Gets the place of the last recorded score among local runs. Must be called from the main thread.
+     *
+     * @return Place of the score or null if no score was recorded or the local leaderboard cannot be opened.
+     */
+    public LocalStanding getLastStanding() {
+        return lastStanding;
+    }
+
+    /**
+     * Logs timing of a session and, in debug builds, replays its log, reporting sessions whose score
+     * cannot be reproduced. Must be called from the executor, replaying takes as long as generating
+     * every board of the session again.
+     *
+     * @param score   Score of the session.
+     * @param metrics Input latency and frame timing of the session as a bundle or null.
+     * @param log     Encoded session log or null.
+     */
+    private static void reportSession(int score, Bundle metrics, byte[] log) {
+        // report session timing so devices and builds can be compared
+        Log.i(TAG, SessionMetrics.fromBundle(metrics).toString());
+        if (!BuildConfig.DEBUG || log == null)
+            return;
+        try {
+            SessionReplay replay = new SessionReplay(SessionLog.fromByteArray(log));
+            int replayed = replay.run(null).getScore();
+            if (replayed != score || replay.getMismatches() != 0)
+                Log.w(TAG, "Session score " + score + " does not match replayed score " + replayed
+                        + " with " + replay.getMismatches() + " mismatching taps.");
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Malformed session log.", e);
+        }
+    }
+
+    /**
+     * Signs in if needed and submits queued scores in the background.
+     * Requests made while a sync is waiting to run are merged into it.
+     * Listeners are notified once the account is known and submission started.
+     */
+    public void sync() {
+        if (syncRequested.compareAndSet(false, true))
+            executor.execute(syncTask);
+    }
+
+    /**
+     * Sync running on the executor.
+     */
+    private final Runnable syncTask = new Runnable() {
+        @Override
+        public void run() {
+            // requests arriving from now on need another run
+            syncRequested.set(false);
+            if (!accountLoaded) {
+                accountLoaded = true;
+                if (getSignedInAccount() == null)
+                    setAccount(GoogleSignIn.getLastSignedInAccount(context));
+            }
+            if (getSignedInAccount() == null)
+                signInSilently();
+            final GoogleSignInAccount account;
+            final LeaderboardService service;
+            synchronized (ScoreSync.this) {
+                account = ScoreSync.this.account;
+                service = ScoreSync.this.service;
+            }
+            if (service != null) {
+                try {
+                    getWindows();
+                    submitter.submit(service, leaderboardId);
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to open score windows.", e);
+                }
+            }
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    for (int listenerIndex = listeners.size() - 1; listenerIndex >= 0; listenerIndex--) {
+                        listeners.get(listenerIndex).onSyncFinished(account);
+                    }
+                }
+            });
+        }
+    };
+
+    /**
+     * Tries to sign in without user interaction. Must be called from the executor.
+     */
+    private void signInSilently() {
+        try {
+            setAccount(Tasks.await(GoogleSignIn.getClient(context, getSignInOptions()).silentSignIn(),
+                    SILENT_SIGN_IN_TIMEOUT, TimeUnit.SECONDS));
+        } catch (ExecutionException e) {
+            // player will need to sign in explicitly via UI
+        } catch (TimeoutException e) {
+            Log.w(TAG, "Silent sign in timed out.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.hrca.arrowstask;
+
+import android.os.Bundle;
+
+import java.util.Locale;
+
+/**
+ * Records input latency and frame timing of a task session.
+ * All latencies are measured from the touch down event and kept in microseconds.
+ * Recording does not allocate, so it can stay enabled on the hot path.
+ */
+public class SessionMetrics {
+    /**
+     * Frames whose drawing took longer than this are counted as slow.
+     */
+    public static final long SLOW_FRAME_NANOS = 16000000L;
+
+    public static final String BUNDLE_INPUT_TO_DISPATCH_KEY = "inputToDispatch";
+    public static final String BUNDLE_INPUT_TO_BOARD_KEY = "inputToBoard";
+    public static final String BUNDLE_INPUT_TO_FRAME_KEY = "inputToFrame";
+    public static final String BUNDLE_FRAME_TIME_KEY = "frameTime";
+    public static final String BUNDLE_SLOW_FRAMES_KEY = "slowFrames";
+    /**
+     * Latency from touch down to the listener being notified.
+     */
+    private final LatencyHistogram inputToDispatch;
+    /**
+     * Latency from touch down to the next board being ready.
+     */
+    private final LatencyHistogram inputToBoard;
+    /**
+     * Latency from touch down to the next frame drawn by the view.
+     */
+    private final LatencyHistogram inputToFrame;
+    /**
+     * Time from the start of a frame to the end of drawing the view.
+     */
+    private final LatencyHistogram frameTime;
+    /**
+     * Number of frames slower than {@link #SLOW_FRAME_NANOS}.
+     */
+    private int slowFrames;
+    /**
+     * Time of the earliest touch down not yet drawn in nanoseconds or -1 if there is none.
+     */
+    private long inputTime = -1;
+
+    public SessionMetrics() {
+        this(new LatencyHistogram(), new LatencyHistogram(), new LatencyHistogram(), new LatencyHistogram(), 0);
+    }
+
+    private SessionMetrics(LatencyHistogram inputToDispatch, LatencyHistogram inputToBoard,
+                           LatencyHistogram inputToFrame, LatencyHistogram frameTime, int slowFrames) {
+        this.inputToDispatch = inputToDispatch;
+        this.inputToBoard = inputToBoard;
+        this.inputToFrame = inputToFrame;
+        this.frameTime = frameTime;
+        this.slowFrames = slowFrames;
+    }
+
+    /**
+     * Records a touch down on a cell.
+     * Only the earliest touch down since the last drawn frame is tracked.
+     *
+     * @param eventTimeMillis Event time in the {@link android.os.SystemClock#uptimeMillis()} time base.
+     */
+    public void onTouchDown(long eventTimeMillis) {
+        if (inputTime < 0)
+            inputTime = eventTimeMillis * 1000000L;
+    }
+
+    /**
+     * Records that the next board is ready after a hit.
+     */
+    public void onBoardGenerated() {
+        if (inputTime >= 0)
+            inputToBoard.record((System.nanoTime() - inputTime) / 1000);
+    }
+
+    /**
+     * Records that the listener was notified of clicks.
+     */
+    public void onClicksDispatched() {
+        if (inputTime >= 0)
+            inputToDispatch.record((System.nanoTime() - inputTime) / 1000);
+    }
+
+    /**
+     * Records that the view finished drawing a frame.
+     *
+     * @param frameStartMillis Start of the frame in the {@link android.os.SystemClock#uptimeMillis()} time base.
+     */
+    public void onFrameDrawn(long frameStartMillis) {
+        long now = System.nanoTime();
+        long duration = now - frameStartMillis * 1000000L;
+        frameTime.record(duration / 1000);
+        if (duration > SLOW_FRAME_NANOS)
+            slowFrames++;
+        if (inputTime >= 0) {
+            inputToFrame.record((now - inputTime) / 1000);
+            inputTime = -1;
+        }
+    }
+
+    /**
+     * Removes all recorded latencies and frames.
+     */
+    public void reset() {
+        inputToDispatch.reset();
+        inputToBoard.reset();
+        inputToFrame.reset();
+        frameTime.reset();
+        slowFrames = 0;
+        inputTime = -1;
+    }
+
+    /**
+     * Gets the number of frames slower than {@link #SLOW_FRAME_NANOS}.
+     *
+     * @return Number of slow frames.
+     */
+    public int getSlowFrames() {
+        return slowFrames;
+    }
+
+    /**
+     * Gets the latency from touch down to the listener being notified.
+     *
+     * @return Histogram in microseconds.
+     */
+    public LatencyHistogram getInputToDispatch() {
+        return inputToDispatch;
+    }
+
+    /**
+     * Gets the latency from touch down to the next board being ready.
+     *
+     * @return Histogram in microseconds.
+     */
+    public LatencyHistogram getInputToBoard() {
+        return inputToBoard;
+    }
+
+    /**
+     * Gets the latency from touch down to the next frame drawn by the view.
+     *
+     * @return Histogram in microseconds.
+     */
+    public LatencyHistogram getInputToFrame() {
+        return inputToFrame;
+    }
+
+    /**
+     * Gets the time from the start of a frame to the end of drawing the view.
+     *
+     * @return Histogram in microseconds.
+     */
+    public LatencyHistogram getFrameTime() {
+        return frameTime;
+    }
+
+    /**
+     * Exports the metrics into a bundle.
+     *
+     * @return Bundle which can be restored with {@link #fromBundle(Bundle)}.
+     */
+    public Bundle toBundle() {
+        Bundle bundle = new Bundle();
+        bundle.putLongArray(BUNDLE_INPUT_TO_DISPATCH_KEY, inputToDispatch.toArray());
+        bundle.putLongArray(BUNDLE_INPUT_TO_BOARD_KEY, inputToBoard.toArray());
+        bundle.putLongArray(BUNDLE_INPUT_TO_FRAME_KEY, inputToFrame.toArray());
+        bundle.putLongArray(BUNDLE_FRAME_TIME_KEY, frameTime.toArray());
+        bundle.putInt(BUNDLE_SLOW_FRAMES_KEY, slowFrames);
+        return bundle;
+    }
+
+    /**
+     * Restores metrics exported by {@link #toBundle()}.
+     *
+     * @param bundle Exported metrics or null.
+     * @return Restored metrics, empty if the bundle is null.
+     */
+    public static SessionMetrics fromBundle(Bundle bundle) {
+        if (bundle == null)
+            return new SessionMetrics();
+        return new SessionMetrics(
+                LatencyHistogram.fromArray(bundle.getLongArray(BUNDLE_INPUT_TO_DISPATCH_KEY)),
+                LatencyHistogram.fromArray(bundle.getLongArray(BUNDLE_INPUT_TO_BOARD_KEY)),
+                LatencyHistogram.fromArray(bundle.getLongArray(BUNDLE_INPUT_TO_FRAME_KEY)),
+                LatencyHistogram.fromArray(bundle.getLongArray(BUNDLE_FRAME_TIME_KEY)),
+                bundle.getInt(BUNDLE_SLOW_FRAMES_KEY, 0));
+    }
+
+    /**
+     * Formats a histogram as count and percentiles in milliseconds.
+     *
+     * @param name      Name of the histogram.
+     * @param histogram Histogram in microseconds.
+     * @return Formatted histogram.
+     */
+    private static String format(String name, LatencyHistogram histogram) {
+        return String.format(Locale.US, "%s n=%d p50=%.1fms p90=%.1fms p99=%.1fms max=%.1fms",
+                name, histogram.getCount(),
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(90) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getMax() / 1000.0);
+    }
+
+    @Override
+    public String toString() {
+        return format("inputToDispatch", inputToDispatch) + "; "
+                + format("inputToBoard", inputToBoard) + "; "
+                + format("inputToFrame", inputToFrame) + "; "
+                + format("frameTime", frameTime) + "; slowFrames=" + slowFrames;
+    }
+}
@@ -0,0 +1,129 @@
+package com.hrca.arrowstask;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+/**
+ * Measures startup of an activity: time to the first drawn frame and time to interactive,
+ * the first moment the main thread is idle after the first frame.
+ * Durations are logged and the startup phases show up as sections in systrace.
+ */
+class StartupTrace {
+    private static final String TAG = "StartupTrace";
+
+    /**
+     * Name of the traced activity.
+     */
+    private final String name;
+    /**
+     * Start of the startup in the {@link SystemClock#uptimeMillis()} time base.
+     */
+    private final long start;
+    /**
+     * Time to the first frame in milliseconds or -1 if no frame was drawn yet.
+     */
+    private long firstFrame = -1;
+    /**
+     * Time to interactive in milliseconds or -1 if not interactive yet.
+     */
+    private long interactive = -1;
+
+    /**
+     * @param name  Name of the traced activity.
+     * @param start Start of the startup in the {@link SystemClock#uptimeMillis()} time base.
+     */
+    StartupTrace(String name, long start) {
+        this.name = name;
+        this.start = start;
+    }
+
+    /**
+     * Starts tracing the startup of an activity created now.
+     *
+     * @param name Name of the traced activity.
+     * @return Started trace.
+     */
+    static StartupTrace start(String name) {
+        return new StartupTrace(name, SystemClock.uptimeMillis());
+    }
+
+    /**
+     * Begins a systrace section on the current thread.
+     *
+     * @param section Name of the section.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    static void beginSection(String section) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2)
+            Trace.beginSection(section);
+    }
+
+    /**
+     * Ends the last systrace section begun on the current thread.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    static void endSection() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2)
+            Trace.endSection();
+    }
+
+    /**
+     * Waits for the first frame of a view hierarchy and the following idle main thread.
+     * Must be called from the main thread.
+     *
+     * @param root          Root of the view hierarchy.
+     * @param onInteractive Run once the activity is interactive or null.
+     */
+    void watch(final View root, final Runnable onInteractive) {
+        root.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                if (root.getViewTreeObserver().isAlive())
+                    root.getViewTreeObserver().removeOnPreDrawListener(this);
+                // runs after the traversal drawing the frame
+                root.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        firstFrame = SystemClock.uptimeMillis() - start;
+                        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+                            @Override
+                            public boolean queueIdle() {
+                                interactive = SystemClock.uptimeMillis() - start;
+                                Log.i(TAG, name + " first frame " + firstFrame + "ms, interactive " + interactive + "ms");
+                                if (onInteractive != null)
+                                    onInteractive.run();
+                                return false;
+                            }
+                        });
+                    }
+                });
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Gets the time to the first frame.
+     *
+     * @return Time in milliseconds or -1 if no frame was drawn yet.
+     */
+    long getFirstFrame() {
+        return firstFrame;
+    }
+
+    /**
+     * Gets the time to interactive.
+     *
+     * @return Time in milliseconds or -1 if not interactive yet.
+     */
+    long getInteractive() {
+        return interactive;
+    }
+}
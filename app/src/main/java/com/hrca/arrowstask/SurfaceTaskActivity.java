@@ -0,0 +1,153 @@
+package com.hrca.arrowstask;
+
+import android.app.Activity;
+import android.app.AlertDialog;
+import android.content.DialogInterface;
+import android.content.Intent;
+import android.os.Bundle;
+
+/**
+ * Activity with arrows task drawn on a dedicated render thread.
+ * The render thread owns the board, score and countdown; this activity only forwards lifecycle events,
+ * offers another round once one finished and returns the result the same way as {@link TaskActivity}.
+ */
+public class SurfaceTaskActivity extends Activity implements RenderThread.Listener {
+    /**
+     * Thread owning and drawing the task, kept across configuration changes.
+     */
+    private RenderThread renderThread;
+    /**
+     * Whether the activity is between onResume and onPause.
+     */
+    private boolean resumed;
+    /**
+     * Whether the current round finished.
+     */
+    private boolean finished;
+    /**
+     * Score of the finished round.
+     */
+    private int finishedScore;
+    /**
+     * Metrics of the finished round.
+     */
+    private Bundle finishedMetrics;
+    /**
+     * Encoded session log of the finished round.
+     */
+    private byte[] finishedLog;
+    /**
+     * Dialog offering another round or null if none was shown.
+     */
+    private AlertDialog roundDialog;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_task_surface);
+
+        renderThread = (RenderThread) getLastNonConfigurationInstance();
+        if (renderThread == null) {
+            int gridSize = getIntent().getIntExtra(TaskActivity.EXTRA_GRID_SIZE, 0);
+            renderThread = new RenderThread(this, gridSize > 0 ? gridSize : ArrowsView.DEFAULT_GRID_SIZE,
+                    TaskActivity.TASK_DURATION * 1000000000L);
+            renderThread.start();
+        }
+        ((ArrowsSurfaceView) findViewById(R.id.board)).setRenderThread(renderThread);
+        renderThread.setListener(this);
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        resumed = true;
+        renderThread.resumeTask();
+        if (finished)
+            showRoundDialog();
+    }
+
+    @Override
+    public void onPause() {
+        resumed = false;
+        // the countdown keeps running through a configuration change
+        if (!isChangingConfigurations())
+            renderThread.pauseTask();
+        super.onPause();
+    }
+
+    @Override
+    protected void onDestroy() {
+        if (roundDialog != null)
+            roundDialog.dismiss();
+        if (isChangingConfigurations())
+            renderThread.setListener(null);
+        else
+            renderThread.quitTask();
+        super.onDestroy();
+    }
+
+    @Override
+    public Object onRetainNonConfigurationInstance() {
+        return renderThread;
+    }
+
+    @Override
+    public void onRoundFinished(int score, Bundle metrics, byte[] log) {
+        finished = true;
+        finishedScore = score;
+        finishedMetrics = metrics;
+        finishedLog = log;
+        if (resumed)
+            showRoundDialog();
+    }
+
+    /**
+     * Shows the score of the finished round and offers another one on the same screen.
+     */
+    private void showRoundDialog() {
+        if (roundDialog != null && roundDialog.isShowing())
+            return;
+        roundDialog = new AlertDialog.Builder(this)
+                .setMessage(getString(R.string.score_message, finishedScore))
+                .setPositiveButton(R.string.play_again, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialogInterface, int i) {
+                        startNextRound();
+                    }
+                })
+                .setNegativeButton(R.string.done, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialogInterface, int i) {
+                        returnResult();
+                    }
+                })
+                .setOnCancelListener(new DialogInterface.OnCancelListener() {
+                    @Override
+                    public void onCancel(DialogInterface dialogInterface) {
+                        returnResult();
+                    }
+                })
+                .show();
+    }
+
+    /**
+     * Queues the score of the finished round and lets the render thread start another one.
+     */
+    private void startNextRound() {
+        ScoreSync.getInstance(this).queue(finishedScore, finishedMetrics, finishedLog);
+        finished = false;
+        renderThread.startNextRound();
+    }
+
+    /**
+     * Sets the score of the last round into the result and finishes the activity.
+     */
+    private void returnResult() {
+        Intent resultData = new Intent();
+        resultData.putExtra(TaskActivity.PARCELABLE_HITS_KEY, finishedScore);
+        resultData.putExtra(TaskActivity.PARCELABLE_METRICS_KEY, finishedMetrics);
+        resultData.putExtra(TaskActivity.PARCELABLE_LOG_KEY, finishedLog);
+        setResult(RESULT_OK, resultData);
+        finish();
+    }
+}
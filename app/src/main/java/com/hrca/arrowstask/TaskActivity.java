@@ -1,9 +1,11 @@
 package com.hrca.arrowstask;
 
 import android.app.Activity;
+import android.app.AlertDialog;
+import android.content.DialogInterface;
 import android.content.Intent;
 import android.os.Bundle;
-import android.os.CountDownTimer;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.widget.TextView;
 
@@ -12,31 +14,78 @@ import com.hrca.arrowstask.ArrowsView.ArrowsViewListener;
 /**
  * Activity with arrows task.
  */
-public class TaskActivity extends Activity implements ArrowsViewListener {
+public class TaskActivity extends Activity implements ArrowsViewListener, FrameTicker.Callback {
     /**
      * Total duration of task in seconds.
      */
     public static final int TASK_DURATION = 60;
+    /**
+     * Nanoseconds in a millisecond.
+     */
+    private static final long NANOS_PER_MILLI = 1000000L;
 
     public static final String PARCELABLE_HITS_KEY = "hit";
     public static final String PARCELABLE_MISSES_KEY = "miss";
     public static final String PARCELABLE_TIME_KEY = "t";
+    public static final String PARCELABLE_METRICS_KEY = "metrics";
+    public static final String PARCELABLE_LOG_KEY = "log";
+    /**
+     * Key of the optional intent extra with number of rows and columns of the arrow grid.
+     */
+    public static final String EXTRA_GRID_SIZE = "gridSize";
+    /**
+     * Key of the optional boolean intent extra enabling grid size adapting to the player.
+     */
+    public static final String EXTRA_ADAPTIVE_DIFFICULTY = "adaptiveDifficulty";
+    /**
+     * Rules, score and countdown of the task.
+     */
+    private TaskSession session = new TaskSession(TASK_DURATION * 1000 * NANOS_PER_MILLI,
+            TASK_DURATION * 1000 * NANOS_PER_MILLI, new TaskScore());
+    /**
+     * Checks the countdown and updates the displayed time every frame while the task runs.
+     */
+    private FrameTicker ticker;
+    /**
+     * Remaining time currently displayed in tenths of a second.
+     */
+    private long displayedTenths = -1;
+    /**
+     * Displayed remaining time, written at the end of the buffer so the text view shows it without allocating.
+     */
+    private final char[] timeText = new char[RenderThread.TEXT_CAPACITY];
+    /**
+     * Displayed score, written at the end of the buffer.
+     */
+    private final char[] scoreText = new char[RenderThread.TEXT_CAPACITY];
+    /**
+     * Whether the activity is between onResume and onPause.
+     */
+    private boolean resumed;
+    /**
+     * Input latency and frame timing of the session.
+     */
+    private SessionMetrics metrics;
     /**
-     * Number of hit arrows.
+     * Board sequences and taps of the session.
      */
-    private int hits = 0;
+    private SessionLog sessionLog;
     /**
-     * Number of miss clicks.
+     * Statistics of the player's taps.
      */
-    private int misses = 0;
+    private TapStatistics tapStatistics;
     /**
-     * Timer counting down the task time.
+     * Policy changing the grid size or null to keep it.
      */
-    private Timer timer;
+    private DifficultyPolicy difficultyPolicy;
     /**
-     * Remaining time for timer to finish.
+     * Time to first frame and time to interactive of this activity.
      */
-    private int remainingTime = TASK_DURATION * 1000;
+    private StartupTrace startupTrace;
+    /**
+     * View with the arrows.
+     */
+    private ArrowsView arrows;
     /**
      * View to display remaining time.
      */
@@ -45,37 +94,121 @@ public class TaskActivity extends Activity implements ArrowsViewListener {
      * View to display score.
      */
     private TextView scoreView;
+    /**
+     * Dialog offering another round or null if none was shown.
+     */
+    private AlertDialog roundDialog;
+    /**
+     * Whether the game state was kept from the instance destroyed by a configuration change.
+     */
+    private boolean retained;
+
+    /**
+     * Game state kept across configuration changes, so rotation neither regenerates the board nor stops the clock.
+     */
+    private static class RetainedState {
+        /**
+         * Rules, score and countdown of the task.
+         */
+        final TaskSession session;
+        /**
+         * Input latency and frame timing of the session.
+         */
+        final SessionMetrics metrics;
+        /**
+         * Board sequences and taps of the session.
+         */
+        final SessionLog sessionLog;
+        /**
+         * Board sequence and current board.
+         */
+        final BoardState boards;
+        /**
+         * Statistics of the player's taps.
+         */
+        final TapStatistics tapStatistics;
+        /**
+         * Policy changing the grid size or null.
+         */
+        final DifficultyPolicy difficultyPolicy;
+
+        RetainedState(TaskSession session, SessionMetrics metrics, SessionLog sessionLog, BoardState boards,
+                      TapStatistics tapStatistics, DifficultyPolicy difficultyPolicy) {
+            this.session = session;
+            this.metrics = metrics;
+            this.sessionLog = sessionLog;
+            this.boards = boards;
+            this.tapStatistics = tapStatistics;
+            this.difficultyPolicy = difficultyPolicy;
+        }
+    }
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        startupTrace = StartupTrace.start("TaskActivity");
+        StartupTrace.beginSection("TaskActivity.setContentView");
         setContentView(R.layout.activity_task);
+        StartupTrace.endSection();
+        startupTrace.watch(getWindow().getDecorView(), null);
 
-        ArrowsView arrows = (ArrowsView) findViewById(R.id.gridview);
+        arrows = (ArrowsView) findViewById(R.id.gridview);
         arrows.setListener(this);
+        RetainedState state = (RetainedState) getLastNonConfigurationInstance();
+        retained = state != null;
+        if (retained) {
+            // continue the same board and clock after a configuration change
+            session = state.session;
+            metrics = state.metrics;
+            sessionLog = state.sessionLog;
+            tapStatistics = state.tapStatistics;
+            difficultyPolicy = state.difficultyPolicy;
+            arrows.setBoardState(state.boards);
+        } else {
+            metrics = SessionMetrics.fromBundle(savedInstanceState == null ? null
+                    : savedInstanceState.getBundle(PARCELABLE_METRICS_KEY));
+            int gridSize = getIntent().getIntExtra(EXTRA_GRID_SIZE, 0);
+            if (gridSize > 0)
+                arrows.setGridSize(gridSize);
+            byte[] log = savedInstanceState == null ? null : savedInstanceState.getByteArray(PARCELABLE_LOG_KEY);
+            sessionLog = log == null ? new SessionLog() : SessionLog.fromByteArray(log);
+            tapStatistics = new TapStatistics();
+            if (getIntent().getBooleanExtra(EXTRA_ADAPTIVE_DIFFICULTY, false))
+                difficultyPolicy = new AdaptiveDifficulty();
+        }
+        arrows.setMetrics(metrics);
+        arrows.setTapStatistics(tapStatistics);
+        arrows.setDifficultyPolicy(difficultyPolicy);
+        if (!session.isFinished())
+            arrows.setSessionLog(sessionLog);
         timeView = (TextView) findViewById(R.id.seconds);
         scoreView = (TextView) findViewById(R.id.score);
+        ticker = new FrameTicker(this);
     }
 
     @Override
     public void onResume() {
         super.onResume();
+        resumed = true;
 
-        // create timer with remaining time
-        timer = new Timer(remainingTime);
-        if (hits != 0 || misses != 0)
-            timer.go();
+        // the countdown continues only once the player clicked
+        session.resume(System.nanoTime());
+        if (session.isRunning())
+            ticker.start();
+        else if (session.isFinished())
+            finishTask();
         //update displayed values
-        timeView.setText(String.valueOf(remainingTime / 1000));
-        scoreView.setText(String.valueOf(hits - misses));
+        displayTime(session.getRemaining(System.nanoTime()));
+        displayScore();
     }
 
     @Override
     public void onPause() {
-        // Destroy timer and update remaining time.
-        timer.stop();
-        remainingTime = timer.getRemainingTime();
-        timer = null;
+        // Stop the countdown keeping the remaining time, it keeps running through a configuration change.
+        resumed = false;
+        ticker.stop();
+        if (!isChangingConfigurations())
+            session.pause(System.nanoTime());
 
         super.onPause();
     }
@@ -83,88 +216,147 @@ public class TaskActivity extends Activity implements ArrowsViewListener {
     @Override
     public void onSaveInstanceState(@NonNull Bundle outState) {
         super.onSaveInstanceState(outState);
-        outState.putInt(PARCELABLE_HITS_KEY, hits);
-        outState.putInt(PARCELABLE_MISSES_KEY, misses);
-        outState.putInt(PARCELABLE_TIME_KEY, remainingTime);
+        outState.putInt(PARCELABLE_HITS_KEY, session.getScore().getHits());
+        outState.putInt(PARCELABLE_MISSES_KEY, session.getScore().getMisses());
+        outState.putInt(PARCELABLE_TIME_KEY, (int) (session.getRemaining(System.nanoTime()) / NANOS_PER_MILLI));
+        outState.putBundle(PARCELABLE_METRICS_KEY, metrics.toBundle());
+        outState.putByteArray(PARCELABLE_LOG_KEY, sessionLog.toByteArray());
+    }
+
+    @Override
+    protected void onDestroy() {
+        if (roundDialog != null)
+            roundDialog.dismiss();
+        super.onDestroy();
+    }
+
+    @Override
+    public Object onRetainNonConfigurationInstance() {
+        return new RetainedState(session, metrics, sessionLog, arrows.getBoardState(),
+                tapStatistics, difficultyPolicy);
     }
 
     @Override
     public void onRestoreInstanceState(@NonNull Bundle savedInstanceState) {
         super.onRestoreInstanceState(savedInstanceState);
-        hits = savedInstanceState.getInt(PARCELABLE_HITS_KEY, 0);
-        misses = savedInstanceState.getInt(PARCELABLE_MISSES_KEY, 0);
-        remainingTime = savedInstanceState.getInt(PARCELABLE_TIME_KEY, TASK_DURATION * 1000);
+        if (retained)
+            return;
+        session = new TaskSession(TASK_DURATION * 1000 * NANOS_PER_MILLI,
+                savedInstanceState.getInt(PARCELABLE_TIME_KEY, TASK_DURATION * 1000) * NANOS_PER_MILLI,
+                new TaskScore(savedInstanceState.getInt(PARCELABLE_HITS_KEY, 0),
+                        savedInstanceState.getInt(PARCELABLE_MISSES_KEY, 0)));
     }
 
     @Override
-    public void onArrowClicked(boolean hit) {
-        timer.go();
+    public void onArrowsClicked(int hits, int misses, long time) {
+        // clicks at or after the deadline do not count, even if they are dispatched with a later frame;
+        // uptime and frame times are both on the monotonic clock
+        if (!session.addClicks(hits, misses, time * NANOS_PER_MILLI))
+            return;
+        // clicks of the last frame may be delivered after the activity was paused
+        if (resumed)
+            ticker.start();
+        else if (!isChangingConfigurations())
+            session.pause(System.nanoTime());
 
-        if (hit)
-            hits++;
-        else
-            misses++;
+        displayScore();
+    }
 
-        scoreView.setText(String.valueOf(hits - misses));
+    @Override
+    public void onFrame(long frameTimeNanos) {
+        long remaining = session.getRemaining(frameTimeNanos);
+        displayTime(remaining);
+        if (remaining == 0) {
+            // taps made before the deadline still count, their own times decide
+            arrows.dispatchPendingClicks();
+            session.update(frameTimeNanos);
+            finishTask();
+        }
     }
 
     /**
-     * Timer ending activity on expiration.
+     * Displays the remaining time in tenths of a second, updating the view only when the text changes.
+     *
+     * @param remaining Remaining time in nanoseconds.
      */
-    private class Timer extends CountDownTimer {
-        /**
-         * Time at which the activity should finish.
-         */
-        long expirationTime;
-        int remainingMilliseconds;
-        boolean isRunning = false;
-
-        public Timer(int remainingMilliseconds) {
-            super(remainingMilliseconds, 1000);
-            this.remainingMilliseconds = remainingMilliseconds;
-        }
+    private void displayTime(long remaining) {
+        // round up so the display reaches zero exactly when the task ends
+        long tenths = (remaining + 100 * NANOS_PER_MILLI - 1) / (100 * NANOS_PER_MILLI);
+        if (tenths == displayedTenths)
+            return;
+        displayedTenths = tenths;
+        // the view keeps the array, it is only rewritten right before the next setText
+        int start = RenderThread.formatNumber(tenths, 1, timeText);
+        timeView.setText(timeText, start, timeText.length - start);
+    }
 
-        public void go() {
-            if (!isRunning) {
-                super.start();
-                isRunning = true;
-                expirationTime = System.currentTimeMillis() + this.remainingMilliseconds;
-            }
-        }
+    /**
+     * Displays the score of the session without allocating.
+     */
+    private void displayScore() {
+        int start = RenderThread.formatNumber(session.getResult(), 0, scoreText);
+        scoreView.setText(scoreText, start, scoreText.length - start);
+    }
 
-        public void stop() {
-            if (isRunning) {
-                super.cancel();
-                remainingMilliseconds = getRemainingTime();
-            }
-            isRunning = false;
-        }
+    /**
+     * Ends the round and offers another one on the same screen.
+     */
+    private void finishTask() {
+        // later taps are neither counted nor logged
+        arrows.setSessionLog(null);
+        ticker.stop();
+        if (roundDialog != null && roundDialog.isShowing())
+            return;
+        roundDialog = new AlertDialog.Builder(this)
+                .setMessage(getString(R.string.score_message, session.getResult()))
+                .setPositiveButton(R.string.play_again, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialogInterface, int i) {
+                        startNextRound();
+                    }
+                })
+                .setNegativeButton(R.string.done, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialogInterface, int i) {
+                        returnResult();
+                    }
+                })
+                .setOnCancelListener(new DialogInterface.OnCancelListener() {
+                    @Override
+                    public void onCancel(DialogInterface dialogInterface) {
+                        returnResult();
+                    }
+                })
+                .show();
+    }
 
-        /**
-         * Gets the remaining to finish activity.
-         *
-         * @return Remaining time in milliseconds.
-         */
-        public int getRemainingTime() {
-            if (isRunning)
-                return (int) (expirationTime - System.currentTimeMillis());
-            else
-                return remainingMilliseconds;
-        }
+    /**
+     * Queues the score of the finished round and resets the task in place.
+     * The arrows view, its rasterized arrows and the frame ticker are reused.
+     */
+    private void startNextRound() {
+        int result = session.getResult();
+        ScoreSync.getInstance(this).queue(result, metrics.toBundle(), sessionLog.toByteArray());
 
-        @Override
-        public void onTick(long l) {
-            //update time
-            timeView.setText(String.valueOf(getRemainingTime() / 1000));
-        }
+        session.reset();
+        metrics.reset();
+        sessionLog.clear();
+        arrows.reset(System.nanoTime());
+        arrows.setSessionLog(sessionLog);
+        tapStatistics.onBoardShown(SystemClock.uptimeMillis() * 1000000L);
+        displayTime(session.getRemaining(System.nanoTime()));
+        displayScore();
+    }
 
-        @Override
-        public void onFinish() {
-            // Set hits into result and finish activity.
-            Intent resultData = new Intent();
-            resultData.putExtra(PARCELABLE_HITS_KEY, hits - misses);
-            TaskActivity.this.setResult(RESULT_OK, resultData);
-            TaskActivity.this.finish();
-        }
+    /**
+     * Sets the score of the last round into the result and finishes the activity.
+     */
+    private void returnResult() {
+        Intent resultData = new Intent();
+        resultData.putExtra(PARCELABLE_HITS_KEY, session.getResult());
+        resultData.putExtra(PARCELABLE_METRICS_KEY, metrics.toBundle());
+        resultData.putExtra(PARCELABLE_LOG_KEY, sessionLog.toByteArray());
+        setResult(RESULT_OK, resultData);
+        finish();
     }
 }
@@ -0,0 +1,60 @@
+package com.hrca.arrowstask;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Throughput of board generation per grid size.
+ */
+@State(Scope.Thread)
+public class BoardGenerationBenchmark {
+    @Param({"4", "8", "16", "32"})
+    public int size;
+    /**
+     * Sequence generating boards on the benchmark thread.
+     */
+    private BoardSequence sequence;
+    /**
+     * Board receiving generated cells.
+     */
+    private ArrowBoard board;
+    /**
+     * Generator prefetching boards on its own thread.
+     */
+    private BoardGenerator generator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sequence = new BoardSequence(size, 42);
+        board = new ArrowBoard(size);
+        generator = new BoardGenerator(new BoardSequence(size, 42));
+        generator.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        generator.stop();
+    }
+
+    /**
+     * Generates a board synchronously, as done when the producer thread is not running.
+     */
+    @Benchmark
+    public ArrowBoard generate() {
+        sequence.next(board);
+        return board;
+    }
+
+    /**
+     * Takes a board from the prefetch ring, as done on a hit.
+     */
+    @Benchmark
+    public ArrowBoard prefetched() {
+        return generator.next();
+    }
+}
@@ -0,0 +1,51 @@
+package com.hrca.arrowstask;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Cost of resolving a single tap to a cell and checking it against the board.
+ */
+@State(Scope.Thread)
+public class HitTestBenchmark {
+    /**
+     * Number of precomputed taps, a power of two.
+     */
+    private static final int TAP_COUNT = 1024;
+    /**
+     * Width and height of the simulated view in pixels.
+     */
+    private static final int VIEW_SIZE = 1080;
+
+    @Param({"4", "8", "16", "32"})
+    public int size;
+    private final GridGeometry geometry = new GridGeometry();
+    private ArrowBoard board;
+    private final float[] x = new float[TAP_COUNT];
+    private final float[] y = new float[TAP_COUNT];
+    private int tap;
+
+    @Setup
+    public void setUp() {
+        geometry.layout(size, 10, 0, 0, VIEW_SIZE, VIEW_SIZE);
+        board = new ArrowBoard(size);
+        new BoardSequence(size, 42).next(board);
+        Random random = new Random(42);
+        for (int i = 0; i < TAP_COUNT; i++) {
+            x[i] = random.nextFloat() * VIEW_SIZE;
+            y[i] = random.nextFloat() * VIEW_SIZE;
+        }
+    }
+
+    @Benchmark
+    public boolean hitTest() {
+        int i = tap++ & (TAP_COUNT - 1);
+        int cell = geometry.cellAt(x[i], y[i]);
+        return cell >= 0 && board.isTarget(cell);
+    }
+}
@@ -0,0 +1,77 @@
+package com.hrca.arrowstask;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Game logic of a whole task session: every tap is resolved to a cell, checked and scored,
+ * and a hit generates the next board. Run with the gc profiler to get allocations per session.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SessionBenchmark {
+    /**
+     * Width and height of the simulated view in pixels.
+     */
+    private static final int VIEW_SIZE = 1080;
+    /**
+     * Number of taps in a session of a fast player, 8 taps per second.
+     */
+    private static final int TAPS_PER_SESSION = 8 * 60;
+
+    @Param({"4", "32"})
+    public int size;
+    /**
+     * Probability of a tap aiming at the up arrow.
+     */
+    @Param({"0.9"})
+    public double accuracy;
+    private final GridGeometry geometry = new GridGeometry();
+    private BoardSequence sequence;
+    private ArrowBoard board;
+    private final boolean[] aimsAtTarget = new boolean[TAPS_PER_SESSION];
+    private final int[] missOffset = new int[TAPS_PER_SESSION];
+
+    @Setup
+    public void setUp() {
+        geometry.layout(size, 10, 0, 0, VIEW_SIZE, VIEW_SIZE);
+        sequence = new BoardSequence(size, 42);
+        board = new ArrowBoard(size);
+        sequence.next(board);
+        Random random = new Random(42);
+        for (int i = 0; i < TAPS_PER_SESSION; i++) {
+            aimsAtTarget[i] = random.nextDouble() < accuracy;
+            missOffset[i] = 1 + random.nextInt(board.getCellCount() - 1);
+        }
+    }
+
+    @Benchmark
+    public int session() {
+        TaskScore score = new TaskScore();
+        final int cellCount = board.getCellCount();
+        final int half = geometry.getCellSize() / 2;
+        for (int i = 0; i < TAPS_PER_SESSION; i++) {
+            int aimed = board.getTarget();
+            if (!aimsAtTarget[i])
+                aimed = (aimed + missOffset[i]) % cellCount;
+            int cell = geometry.cellAt(geometry.getCellLeft(aimed) + half, geometry.getCellTop(aimed) + half);
+            if (cell >= 0 && board.isTarget(cell)) {
+                score.add(1, 0);
+                sequence.next(board);
+            } else {
+                score.add(0, 1);
+            }
+        }
+        return score.getScore();
+    }
+}
@@ -0,0 +1,63 @@
+package com.hrca.arrowstask;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole simulated sessions of a fast player, on one thread and on all cores.
+ * Scores are reported as sessions per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SimulationBenchmark {
+    /**
+     * Number of sessions simulated in parallel per invocation.
+     */
+    private static final int SESSIONS = 4096;
+
+    @Param({"4", "16"})
+    public int size;
+    private ForkJoinPool pool;
+    private TaskSimulator simulator;
+    /**
+     * Player tapping every 125 plus or minus 50 ms with 90% accuracy.
+     */
+    private final TaskSimulator.Player player = new TaskSimulator.Player(125000000L, 50000000L, 0.9);
+    private long seed;
+
+    @Setup
+    public void setUp() {
+        pool = new ForkJoinPool();
+        simulator = new TaskSimulator(pool, size, BoardSequence.FULL_REGENERATION, TaskSession.DEFAULT_DURATION);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int single() {
+        return simulator.simulate(player, seed++);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SESSIONS)
+    public int[] parallel() {
+        int[] results = simulator.simulate(player, seed, SESSIONS);
+        seed += SESSIONS;
+        return results;
+    }
+}
@@ -0,0 +1,81 @@
+package com.hrca.arrowstask;
+
+/**
+ * Grows the grid for fast and accurate players and shrinks it for struggling ones.
+ * The grid changes by one row and column at a time and only after a number of taps at the current size,
+ * so the averages reflect the current size before the next change.
+ */
+public class AdaptiveDifficulty implements DifficultyPolicy {
+    /**
+     * Smallest grid size.
+     */
+    private final int minSize;
+    /**
+     * Largest grid size.
+     */
+    private final int maxSize;
+    /**
+     * Number of taps at a size before it changes again.
+     */
+    private final int tapsPerChange;
+    /**
+     * Accuracy needed to grow the grid.
+     */
+    private final double growAccuracy;
+    /**
+     * Longest average reaction time to grow the grid in nanoseconds.
+     */
+    private final long growReactionTime;
+    /**
+     * Accuracy under which the grid shrinks.
+     */
+    private final double shrinkAccuracy;
+    /**
+     * Number of taps recorded when the size last changed.
+     */
+    private long lastChange;
+
+    /**
+     * Adapts between 3 and 8 rows after every 10 taps, growing at 90% accuracy with reactions
+     * under 700 milliseconds and shrinking under 70% accuracy.
+     */
+    public AdaptiveDifficulty() {
+        this(3, 8, 10, 0.9, 700000000L, 0.7);
+    }
+
+    /**
+     * @param minSize          Smallest grid size.
+     * @param maxSize          Largest grid size.
+     * @param tapsPerChange    Number of taps at a size before it changes again.
+     * @param growAccuracy     Accuracy needed to grow the grid.
+     * @param growReactionTime Longest average reaction time to grow the grid in nanoseconds.
+     * @param shrinkAccuracy   Accuracy under which the grid shrinks.
+     */
+    public AdaptiveDifficulty(int minSize, int maxSize, int tapsPerChange,
+                              double growAccuracy, long growReactionTime, double shrinkAccuracy) {
+        if (minSize <= 0 || maxSize < minSize)
+            throw new IllegalArgumentException("Sizes must be positive and ordered.");
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.tapsPerChange = tapsPerChange;
+        this.growAccuracy = growAccuracy;
+        this.growReactionTime = growReactionTime;
+        this.shrinkAccuracy = shrinkAccuracy;
+    }
+
+    @Override
+    public int chooseGridSize(TapStatistics statistics, int currentSize) {
+        if (statistics.getTaps() - lastChange < tapsPerChange)
+            return currentSize;
+        int size = currentSize;
+        double reactionTime = statistics.getReactionTime();
+        if (statistics.getAccuracy() >= growAccuracy && reactionTime > 0 && reactionTime <= growReactionTime)
+            size++;
+        else if (statistics.getAccuracy() < shrinkAccuracy)
+            size--;
+        size = size < minSize ? minSize : size > maxSize ? maxSize : size;
+        if (size != currentSize)
+            lastChange = statistics.getTaps();
+        return size;
+    }
+}
@@ -0,0 +1,191 @@
+package com.hrca.arrowstask;
+
+import java.util.Arrays;
+
+/**
+ * Square board of arrows packed into 2 bits per cell.
+ * Cells are stored row by row, 32 cells per long, so a 4x4 board fits in a single word.
+ * The index of the up arrow is tracked while cells are set, so it is found without scanning.
+ */
+public class ArrowBoard {
+    /**
+     * Value of a cell containing the up arrow.
+     */
+    public static final int UP = 0;
+    /**
+     * Value of a cell containing the down arrow.
+     */
+    public static final int DOWN = 1;
+    /**
+     * Value of a cell containing the left arrow.
+     */
+    public static final int LEFT = 2;
+    /**
+     * Value of a cell containing the right arrow.
+     */
+    public static final int RIGHT = 3;
+    /**
+     * Number of different arrows.
+     */
+    public static final int ARROW_COUNT = 4;
+    /**
+     * Number of bits used by a single cell.
+     */
+    private static final int BITS_PER_CELL = 2;
+    /**
+     * Number of cells stored in a single word.
+     */
+    private static final int CELLS_PER_WORD = Long.SIZE / BITS_PER_CELL;
+    /**
+     * Mask of a single cell.
+     */
+    private static final long CELL_MASK = (1 << BITS_PER_CELL) - 1;
+    /**
+     * Mask of the lowest bit of every cell in a word.
+     */
+    private static final long LOW_BITS = 0x5555555555555555L;
+    /**
+     * Number of rows and columns.
+     */
+    private final int size;
+    /**
+     * Number of cells.
+     */
+    private final int cellCount;
+    /**
+     * Packed cells.
+     */
+    private final long[] words;
+    /**
+     * Index of the cell with the up arrow or -1 if there is none.
+     */
+    private int target = -1;
+
+    /**
+     * Creates a board filled with up arrows in all cells, with no target set.
+     *
+     * @param size Number of rows and columns.
+     */
+    public ArrowBoard(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException("Size must be positive.");
+        this.size = size;
+        this.cellCount = size * size;
+        this.words = new long[(cellCount + CELLS_PER_WORD - 1) / CELLS_PER_WORD];
+    }
+
+    /**
+     * Gets the number of rows and columns.
+     *
+     * @return Board size.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the number of cells.
+     *
+     * @return Number of cells.
+     */
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    /**
+     * Gets the arrow in a cell.
+     *
+     * @param cell Index of the cell.
+     * @return One of {@link #UP}, {@link #DOWN}, {@link #LEFT} and {@link #RIGHT}.
+     */
+    public int get(int cell) {
+        return (int) (words[cell / CELLS_PER_WORD] >>> (cell % CELLS_PER_WORD * BITS_PER_CELL) & CELL_MASK);
+    }
+
+    /**
+     * Sets the arrow in a cell.
+     * Setting an up arrow makes the cell the target of the board.
+     *
+     * @param cell  Index of the cell.
+     * @param arrow One of {@link #UP}, {@link #DOWN}, {@link #LEFT} and {@link #RIGHT}.
+     */
+    public void set(int cell, int arrow) {
+        int word = cell / CELLS_PER_WORD;
+        int shift = cell % CELLS_PER_WORD * BITS_PER_CELL;
+        words[word] = words[word] & ~(CELL_MASK << shift) | (arrow & CELL_MASK) << shift;
+        if (arrow == UP)
+            target = cell;
+        else if (cell == target)
+            target = -1;
+    }
+
+    /**
+     * Gets the index of the cell with the up arrow.
+     * When more up arrows were set, the last set one is returned.
+     *
+     * @return Index of the cell or -1 if there is none.
+     */
+    public int getTarget() {
+        return target;
+    }
+
+    /**
+     * Checks if a cell contains the up arrow.
+     *
+     * @param cell Index of the cell.
+     * @return True if the cell contains the up arrow.
+     */
+    public boolean isTarget(int cell) {
+        return get(cell) == UP;
+    }
+
+    /**
+     * Copies cells of another board of the same size into this board.
+     *
+     * @param other Board to copy.
+     */
+    public void copyFrom(ArrowBoard other) {
+        if (other.size != size)
+            throw new IllegalArgumentException("Boards must be of the same size.");
+        System.arraycopy(other.words, 0, words, 0, words.length);
+        target = other.target;
+    }
+
+    /**
+     * Finds cells which differ from another board of the same size.
+     *
+     * @param other   Board to compare with.
+     * @param changed Array receiving indices of changed cells in ascending order, at least cell count long.
+     * @return Number of changed cells.
+     */
+    public int diff(ArrowBoard other, int[] changed) {
+        if (other.size != size)
+            throw new IllegalArgumentException("Boards must be of the same size.");
+        int count = 0;
+        for (int word = 0; word < words.length; word++) {
+            long difference = words[word] ^ other.words[word];
+            // collapse each differing cell into its lowest bit
+            long cells = (difference | difference >>> 1) & LOW_BITS;
+            while (cells != 0) {
+                changed[count++] = word * CELLS_PER_WORD + Long.numberOfTrailingZeros(cells) / BITS_PER_CELL;
+                cells &= cells - 1;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof ArrowBoard))
+            return false;
+        ArrowBoard other = (ArrowBoard) o;
+        return size == other.size && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * size + Arrays.hashCode(words);
+    }
+}
@@ -0,0 +1,179 @@
+package com.hrca.arrowstask;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generates upcoming boards of a board sequence ahead of time on a background thread.
+ * Boards are kept in a fixed-size ring buffer of preallocated bit-packed boards.
+ * The ring is shared by exactly one producer (the background thread) and one consumer:
+ * taking a ready board only moves an index. When the ring runs empty, the consumer does not wait
+ * for the producer but generates the board itself, under the lock the producer holds for each board.
+ */
+public class BoardGenerator {
+    /**
+     * Default number of boards in the ring buffer.
+     */
+    public static final int DEFAULT_CAPACITY = 8;
+    /**
+     * Sequence of generated boards.
+     */
+    private final BoardSequence sequence;
+    /**
+     * Number of boards in the ring buffer.
+     */
+    private final int capacity;
+    /**
+     * Ring buffer of boards.
+     */
+    private final ArrowBoard[] boards;
+    /**
+     * Number of boards published by the producer.
+     */
+    private final AtomicLong produced = new AtomicLong();
+    /**
+     * Number of boards released by the consumer.
+     */
+    private final AtomicLong released = new AtomicLong();
+    /**
+     * Index of the board currently held by the consumer or -1 if none is held.
+     */
+    private long current = -1;
+    /**
+     * Producer thread or null when the generator is stopped.
+     */
+    private volatile Thread producer;
+    /**
+     * Held while a board is generated, so the producer and the consumer never advance the sequence at once.
+     */
+    private final Object generationLock = new Object();
+
+    /**
+     * Creates a generator with default capacity.
+     *
+     * @param sequence Sequence of boards to generate.
+     */
+    public BoardGenerator(BoardSequence sequence) {
+        this(sequence, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param sequence Sequence of boards to generate.
+     * @param capacity Number of boards in the ring buffer, at least 2.
+     */
+    public BoardGenerator(BoardSequence sequence, int capacity) {
+        if (capacity < 2)
+            throw new IllegalArgumentException("Capacity must be at least 2.");
+        this.sequence = sequence;
+        this.capacity = capacity;
+        this.boards = new ArrowBoard[capacity];
+        for (int i = 0; i < capacity; i++) {
+            boards[i] = new ArrowBoard(sequence.getSize());
+        }
+    }
+
+    /**
+     * Gets the generated sequence.
+     *
+     * @return Board sequence.
+     */
+    public BoardSequence getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Starts the producer thread if it is not running.
+     * Generation continues where it stopped, so the sequence is not affected by restarts.
+     */
+    public synchronized void start() {
+        if (producer != null)
+            return;
+        producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                produce();
+            }
+        }, "BoardGenerator");
+        producer.setDaemon(true);
+        // a consumer finding the ring empty generates on its own thread, so the producer needs no boost
+        producer.setPriority(Thread.NORM_PRIORITY);
+        producer.start();
+    }
+
+    /**
+     * Stops the producer thread and waits for it to finish.
+     * Already generated boards remain available.
+     */
+    public synchronized void stop() {
+        Thread thread = producer;
+        if (thread == null)
+            return;
+        producer = null;
+        LockSupport.unpark(thread);
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Fills the ring buffer until the generator is stopped.
+     */
+    private void produce() {
+        final Thread self = Thread.currentThread();
+        while (producer == self) {
+            synchronized (generationLock) {
+                long index = produced.get();
+                if (index - released.get() < capacity) {
+                    generate(index);
+                    continue;
+                }
+            }
+            // ring is full, wait for the consumer to release a board
+            LockSupport.park(this);
+        }
+    }
+
+    /**
+     * Generates a board into its slot of the ring and publishes it. Must be called with the generation lock held.
+     *
+     * @param index Index of the board, the number of boards produced so far.
+     */
+    private void generate(long index) {
+        sequence.next(boards[(int) (index % capacity)]);
+        // publishes the cells written above
+        produced.lazySet(index + 1);
+    }
+
+    /**
+     * Releases the currently held board and takes the next one.
+     * Must always be called from the same thread.
+     * When no board is ready yet, it is generated on the calling thread.
+     * The returned board must not be used after the next call.
+     *
+     * @return The next board.
+     */
+    public ArrowBoard next() {
+        if (current >= 0) {
+            released.lazySet(current + 1);
+            Thread thread = producer;
+            if (thread != null)
+                LockSupport.unpark(thread);
+        }
+        current = released.get();
+        if (produced.get() <= current) {
+            // waits at most for the board the producer is generating right now
+            synchronized (generationLock) {
+                if (produced.get() <= current)
+                    generate(current);
+            }
+        }
+        return boards[(int) (current % capacity)];
+    }
+}
@@ -0,0 +1,155 @@
+package com.hrca.arrowstask;
+
+import java.util.Random;
+
+/**
+ * Deterministic sequence of arrow boards.
+ * Every board contains exactly one up arrow, all other cells contain one of the remaining arrows.
+ * Boards are either generated from scratch or derived from the previous board by moving the up arrow
+ * and changing a limited number of other cells.
+ * Two sequences with the same seed, size and number of changes generate the same boards.
+ */
+public class BoardSequence {
+    /**
+     * Number of changes value generating every board from scratch.
+     */
+    public static final int FULL_REGENERATION = -1;
+    /**
+     * Number of rows and columns of each board.
+     */
+    private final int size;
+    /**
+     * Seed the sequence was created with.
+     */
+    private final long seed;
+    /**
+     * Number of randomized cells besides the moved up arrow or {@link #FULL_REGENERATION}.
+     */
+    private final int changes;
+    /**
+     * Random number generator to generate random boards.
+     */
+    private final Random random;
+    /**
+     * Previously generated board or null if boards are generated from scratch or none was generated.
+     */
+    private ArrowBoard previous;
+
+    /**
+     * Creates a sequence generating every board from scratch.
+     *
+     * @param size Number of rows and columns of each board.
+     * @param seed Seed of the sequence.
+     */
+    public BoardSequence(int size, long seed) {
+        this(size, seed, FULL_REGENERATION);
+    }
+
+    /**
+     * @param size    Number of rows and columns of each board.
+     * @param seed    Seed of the sequence.
+     * @param changes Number of randomized cells besides the moved up arrow
+     *                or {@link #FULL_REGENERATION} to generate every board from scratch.
+     */
+    public BoardSequence(int size, long seed, int changes) {
+        if (size <= 0)
+            throw new IllegalArgumentException("Size must be positive.");
+        if (changes < FULL_REGENERATION)
+            throw new IllegalArgumentException("Number of changes must not be negative.");
+        this.size = size;
+        this.seed = seed;
+        this.changes = changes;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Gets the number of rows and columns of each board.
+     *
+     * @return Board size.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the number of randomized cells besides the moved up arrow.
+     *
+     * @return Number of changes or {@link #FULL_REGENERATION}.
+     */
+    public int getChanges() {
+        return changes;
+    }
+
+    /**
+     * Gets the seed the sequence was created with.
+     *
+     * @return Seed of the sequence.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Generates the next board of the sequence.
+     *
+     * @param board Board of the sequence size to write cells to.
+     */
+    public void next(ArrowBoard board) {
+        if (changes == FULL_REGENERATION) {
+            generate(board);
+            return;
+        }
+        if (previous == null) {
+            generate(board);
+            previous = new ArrowBoard(size);
+        } else {
+            derive(board);
+        }
+        previous.copyFrom(board);
+    }
+
+    /**
+     * Generates a board from scratch.
+     *
+     * @param board Board to write cells to.
+     */
+    private void generate(ArrowBoard board) {
+        final int cellCount = board.getCellCount();
+        for (int i = 0; i < cellCount; i++) {
+            board.set(i, randomDistractor());
+        }
+        board.set(random.nextInt(cellCount), ArrowBoard.UP);
+    }
+
+    /**
+     * Generates a board from the previous one by moving the up arrow and randomizing some cells.
+     *
+     * @param board Board to write cells to.
+     */
+    private void derive(ArrowBoard board) {
+        final int cellCount = board.getCellCount();
+        board.copyFrom(previous);
+        int oldTarget = board.getTarget();
+        int target = 0;
+        if (cellCount > 1) {
+            board.set(oldTarget, randomDistractor());
+            // any cell but the old target
+            target = random.nextInt(cellCount - 1);
+            if (target >= oldTarget)
+                target++;
+        }
+        for (int i = 0; i < changes; i++) {
+            board.set(random.nextInt(cellCount), randomDistractor());
+        }
+        board.set(target, ArrowBoard.UP);
+    }
+
+    /**
+     * Gets a random arrow other than the up arrow.
+     *
+     * @return Random arrow.
+     */
+    private int randomDistractor() {
+        return random.nextInt(ArrowBoard.ARROW_COUNT - 1) + 1;
+    }
+}
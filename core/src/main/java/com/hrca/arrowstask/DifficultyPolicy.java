@@ -0,0 +1,20 @@
+package com.hrca.arrowstask;
+
+/**
+ * Chooses the difficulty of the next boards from the statistics of the player's taps.
+ * Consulted after hits on the UI thread, so it must run in constant time.
+ * Only the grid size is adapted: every board has a single target among arrows drawn uniformly,
+ * so there is no target count or distractor bias to choose.
+ * A new size is prepared in the background and takes effect a few boards later,
+ * the policy is not consulted again until it does.
+ */
+public interface DifficultyPolicy {
+    /**
+     * Chooses the grid size of the next boards.
+     *
+     * @param statistics  Statistics of the taps so far, including the last hit.
+     * @param currentSize Current number of rows and columns.
+     * @return Number of rows and columns of the next boards.
+     */
+    int chooseGridSize(TapStatistics statistics, int currentSize);
+}
@@ -0,0 +1,157 @@
+package com.hrca.arrowstask;
+
+/**
+ * Position and size of the cells of a square grid within a view.
+ * Maps coordinates to cells with integer arithmetic only.
+ */
+public class GridGeometry {
+    /**
+     * Smallest ratio of the distance between neighbouring cells to the spacing between them.
+     * Keeps cells of large grids from shrinking to nothing between fixed spacings.
+     */
+    public static final int MIN_STEP_PER_SPACING = 8;
+    /**
+     * Number of rows and columns.
+     */
+    private int gridSize = 1;
+    /**
+     * Size of a single square cell in pixels.
+     */
+    private int cellSize;
+    /**
+     * Space between two neighbouring cells in pixels.
+     */
+    private int cellSpacing;
+    /**
+     * Left offset of the grid.
+     */
+    private int left;
+    /**
+     * Top offset of the grid.
+     */
+    private int top;
+
+    /**
+     * Computes the largest grid fitting into an area and centers it there.
+     * The spacing is reduced to at most {@code 1 / MIN_STEP_PER_SPACING} of the distance between cells.
+     *
+     * @param gridSize    Number of rows and columns.
+     * @param cellSpacing Largest space between two neighbouring cells.
+     * @param areaLeft    Left edge of the area.
+     * @param areaTop     Top edge of the area.
+     * @param areaWidth   Width of the area.
+     * @param areaHeight  Height of the area.
+     */
+    public void layout(int gridSize, int cellSpacing, int areaLeft, int areaTop, int areaWidth, int areaHeight) {
+        if (gridSize <= 0)
+            throw new IllegalArgumentException("Grid size must be positive.");
+        int available = areaWidth < areaHeight ? areaWidth : areaHeight;
+
+        this.gridSize = gridSize;
+        int maxSpacing = available / (gridSize * MIN_STEP_PER_SPACING);
+        this.cellSpacing = cellSpacing < maxSpacing ? cellSpacing : maxSpacing;
+        cellSize = (available - this.cellSpacing * (gridSize - 1)) / gridSize;
+        if (cellSize < 0)
+            cellSize = 0;
+        int extent = getExtent();
+        left = areaLeft + (areaWidth - extent) / 2;
+        top = areaTop + (areaHeight - extent) / 2;
+    }
+
+    /**
+     * Gets the number of rows and columns.
+     *
+     * @return Grid size.
+     */
+    public int getGridSize() {
+        return gridSize;
+    }
+
+    /**
+     * Gets the size of a single cell.
+     *
+     * @return Cell size in pixels, 0 if the grid does not fit.
+     */
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Gets the distance between the same edges of two neighbouring cells.
+     *
+     * @return Cell size plus spacing.
+     */
+    public int getStep() {
+        return cellSize + cellSpacing;
+    }
+
+    /**
+     * Gets the width and height of the whole grid.
+     *
+     * @return Grid extent in pixels.
+     */
+    public int getExtent() {
+        return cellSize * gridSize + cellSpacing * (gridSize - 1);
+    }
+
+    /**
+     * Gets the left offset of the grid.
+     *
+     * @return Left edge of the first column.
+     */
+    public int getLeft() {
+        return left;
+    }
+
+    /**
+     * Gets the top offset of the grid.
+     *
+     * @return Top edge of the first row.
+     */
+    public int getTop() {
+        return top;
+    }
+
+    /**
+     * Gets the left edge of a cell.
+     *
+     * @param cell Index of the cell.
+     * @return Left edge in pixels.
+     */
+    public int getCellLeft(int cell) {
+        return left + cell % gridSize * getStep();
+    }
+
+    /**
+     * Gets the top edge of a cell.
+     *
+     * @param cell Index of the cell.
+     * @return Top edge in pixels.
+     */
+    public int getCellTop(int cell) {
+        return top + cell / gridSize * getStep();
+    }
+
+    /**
+     * Gets the index of the cell at given coordinates.
+     *
+     * @param x Horizontal coordinate.
+     * @param y Vertical coordinate.
+     * @return Index of the cell or -1 when there is no cell at the coordinates.
+     */
+    public int cellAt(float x, float y) {
+        if (cellSize <= 0 || x < left || y < top)
+            return -1;
+        int step = getStep();
+        int offsetX = (int) x - left;
+        int offsetY = (int) y - top;
+        int column = offsetX / step;
+        int row = offsetY / step;
+        if (column >= gridSize || row >= gridSize)
+            return -1;
+        // taps into the spacing between cells do not belong to any cell
+        if (offsetX - column * step >= cellSize || offsetY - row * step >= cellSize)
+            return -1;
+        return row * gridSize + column;
+    }
+}
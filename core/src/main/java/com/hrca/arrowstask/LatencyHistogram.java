@@ -0,0 +1,181 @@
+package com.hrca.arrowstask;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-memory histogram of latencies with logarithmic buckets.
+ * Values below 16 are counted exactly, larger values in buckets with 1/8 relative width,
+ * so every recorded value is reported with at most 12.5% error.
+ * Recording does not allocate.
+ */
+public class LatencyHistogram {
+    /**
+     * Number of buckets holding exact values.
+     */
+    private static final int LINEAR_BUCKETS = 16;
+    /**
+     * Number of bits of precision of a logarithmic bucket.
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+    /**
+     * Number of buckets per power of two.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /**
+     * Exponent of the first power of two counted in logarithmic buckets.
+     */
+    private static final int FIRST_EXPONENT = 4;
+    /**
+     * Total number of buckets, covering all non-negative long values.
+     */
+    public static final int BUCKET_COUNT = LINEAR_BUCKETS + (Long.SIZE - 1 - FIRST_EXPONENT) * SUB_BUCKETS;
+    /**
+     * Counts of recorded values per bucket.
+     */
+    private final long[] counts = new long[BUCKET_COUNT];
+    /**
+     * Number of recorded values.
+     */
+    private long totalCount;
+    /**
+     * Sum of recorded values.
+     */
+    private long sum;
+    /**
+     * Largest recorded value.
+     */
+    private long max;
+
+    /**
+     * Records a value. Negative values are recorded as zero.
+     *
+     * @param value Value to record.
+     */
+    public void record(long value) {
+        if (value < 0)
+            value = 0;
+        counts[bucketOf(value)]++;
+        totalCount++;
+        sum += value;
+        if (value > max)
+            max = value;
+    }
+
+    /**
+     * Gets the index of the bucket counting a value.
+     *
+     * @param value Non-negative value.
+     * @return Index of the bucket.
+     */
+    private static int bucketOf(long value) {
+        if (value < LINEAR_BUCKETS)
+            return (int) value;
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return LINEAR_BUCKETS + (exponent - FIRST_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Gets the largest value counted by a bucket.
+     *
+     * @param bucket Index of the bucket.
+     * @return Upper bound of the bucket.
+     */
+    private static long upperBoundOf(int bucket) {
+        if (bucket < LINEAR_BUCKETS)
+            return bucket;
+        int exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + FIRST_EXPONENT;
+        long subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /**
+     * Gets the number of recorded values.
+     *
+     * @return Number of values.
+     */
+    public long getCount() {
+        return totalCount;
+    }
+
+    /**
+     * Gets the largest recorded value.
+     *
+     * @return Largest value or 0 if nothing was recorded.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Gets the mean of recorded values.
+     *
+     * @return Mean value or 0 if nothing was recorded.
+     */
+    public double getMean() {
+        return totalCount == 0 ? 0 : (double) sum / totalCount;
+    }
+
+    /**
+     * Gets the value below or at which the given percentage of recorded values lies.
+     *
+     * @param percentile Percentage between 0 and 100.
+     * @return Upper bound of the bucket containing the percentile, never larger than the maximum.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0)
+            return 0;
+        long rank = (long) Math.ceil(percentile / 100 * totalCount);
+        if (rank < 1)
+            rank = 1;
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank)
+                return Math.min(upperBoundOf(bucket), max);
+        }
+        return max;
+    }
+
+    /**
+     * Removes all recorded values.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    /**
+     * Exports the histogram into an array which can be restored with {@link #fromArray(long[])}.
+     *
+     * @return Sum, maximum and bucket counts.
+     */
+    public long[] toArray() {
+        long[] result = new long[2 + BUCKET_COUNT];
+        result[0] = sum;
+        result[1] = max;
+        System.arraycopy(counts, 0, result, 2, BUCKET_COUNT);
+        return result;
+    }
+
+    /**
+     * Restores a histogram exported by {@link #toArray()}.
+     *
+     * @param array Exported histogram or null.
+     * @return Restored histogram, empty if array is null or malformed.
+     */
+    public static LatencyHistogram fromArray(long[] array) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        if (array == null || array.length != 2 + BUCKET_COUNT)
+            return histogram;
+        histogram.sum = array[0];
+        histogram.max = array[1];
+        System.arraycopy(array, 2, histogram.counts, 0, BUCKET_COUNT);
+        for (long count : histogram.counts) {
+            histogram.totalCount += count;
+        }
+        return histogram;
+    }
+}
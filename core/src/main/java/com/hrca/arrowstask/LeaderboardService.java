@@ -0,0 +1,32 @@
+package com.hrca.arrowstask;
+
+/**
+ * Remote leaderboard accepting scores.
+ */
+public interface LeaderboardService {
+    /**
+     * Submits a score. The callback may be invoked on any thread.
+     *
+     * @param leaderboardId Leaderboard to submit the score to.
+     * @param score         Score to submit.
+     * @param callback      Callback notified when the submission is acknowledged or fails.
+     */
+    void submitScore(String leaderboardId, long score, Callback callback);
+
+    /**
+     * Result of a score submission.
+     */
+    interface Callback {
+        /**
+         * Invoked when the service acknowledged the score.
+         */
+        void onSuccess();
+
+        /**
+         * Invoked when the score was not accepted.
+         *
+         * @param e Cause of the failure.
+         */
+        void onFailure(Exception e);
+    }
+}
@@ -0,0 +1,245 @@
+package com.hrca.arrowstask;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * On-device history of scores in a memory-mapped file of fixed size.
+ * Keeps the best {@link #TOP_COUNT} scores and, for every score, the number of sessions scoring at least as much,
+ * so the personal best, rank and percentile of any score are read in constant time, no matter how many
+ * sessions were recorded. Recording a score updates the counts of all lower scores, which is bounded
+ * by the number of tracked scores and happens once per session.
+ * Scores outside of the tracked range are counted as the nearest tracked score.
+ */
+public class LocalLeaderboard {
+    /**
+     * Number of best scores kept.
+     */
+    public static final int TOP_COUNT = 10;
+    /**
+     * Lowest tracked score.
+     */
+    public static final int MIN_SCORE = -1024;
+    /**
+     * Number of tracked scores.
+     */
+    public static final int SCORE_COUNT = 4096;
+
+    /**
+     * Identifies a local leaderboard file.
+     */
+    private static final int MAGIC = 0x4152424C;
+    /**
+     * Version of the file format.
+     */
+    private static final int VERSION = 1;
+    /**
+     * Position of the number of recorded sessions.
+     */
+    private static final int TOTAL_POSITION = 8;
+    /**
+     * Position of the first best score entry.
+     */
+    private static final int TOP_POSITION = 16;
+    /**
+     * Size of a best score entry: time and score.
+     */
+    private static final int TOP_ENTRY_SIZE = 8 + 4;
+    /**
+     * Position of the count of sessions scoring at least the lowest tracked score.
+     */
+    private static final int COUNTS_POSITION = TOP_POSITION + TOP_COUNT * TOP_ENTRY_SIZE;
+    /**
+     * Size of the file.
+     */
+    private static final int FILE_SIZE = COUNTS_POSITION + SCORE_COUNT * 4;
+
+    /**
+     * Opened file.
+     */
+    private final RandomAccessFile file;
+    /**
+     * Whole file mapped into memory.
+     */
+    private final MappedByteBuffer buffer;
+    /**
+     * Number of best scores recorded, at most {@link #TOP_COUNT}.
+     */
+    private int topSize;
+
+    /**
+     * Opens a local leaderboard, creating the file if it does not exist.
+     *
+     * @param path Leaderboard file.
+     * @throws IOException If the file cannot be mapped or is not a local leaderboard.
+     */
+    public LocalLeaderboard(File path) throws IOException {
+        file = new RandomAccessFile(path, "rw");
+        try {
+            boolean created = file.length() == 0;
+            if (!created && file.length() != FILE_SIZE)
+                throw new IOException("Not a local leaderboard.");
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+            if (created) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+            } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not a local leaderboard.");
+            }
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+        long total = getTotal();
+        topSize = total < TOP_COUNT ? (int) total : TOP_COUNT;
+    }
+
+    /**
+     * Gets the index of the count of a score.
+     *
+     * @param score Score.
+     * @return Index clamped to the tracked scores.
+     */
+    private static int index(int score) {
+        int index = score - MIN_SCORE;
+        return index < 0 ? 0 : index >= SCORE_COUNT ? SCORE_COUNT - 1 : index;
+    }
+
+    /**
+     * Gets the number of sessions scoring at least the tracked score at an index.
+     *
+     * @param index Index of the tracked score.
+     * @return Number of sessions, 0 above the highest tracked score.
+     */
+    private int atLeast(int index) {
+        return index >= SCORE_COUNT ? 0 : buffer.getInt(COUNTS_POSITION + index * 4);
+    }
+
+    /**
+     * Records the score of a session.
+     * The change is visible immediately, {@link #flush()} writes it to the storage device.
+     *
+     * @param time  Time the score was achieved in milliseconds since epoch.
+     * @param score The score.
+     */
+    public synchronized void record(long time, int score) {
+        int index = index(score);
+        for (int i = 0, position = COUNTS_POSITION; i <= index; i++, position += 4) {
+            buffer.putInt(position, buffer.getInt(position) + 1);
+        }
+        // insert into the best scores keeping them ordered, later of equal scores go after
+        int insert = topSize;
+        while (insert > 0 && getTopScore(insert - 1) < score)
+            insert--;
+        if (insert < TOP_COUNT) {
+            int last = topSize < TOP_COUNT ? topSize : TOP_COUNT - 1;
+            for (int i = last; i > insert; i--) {
+                int position = TOP_POSITION + i * TOP_ENTRY_SIZE;
+                buffer.putLong(position, buffer.getLong(position - TOP_ENTRY_SIZE));
+                buffer.putInt(position + 8, buffer.getInt(position - TOP_ENTRY_SIZE + 8));
+            }
+            int position = TOP_POSITION + insert * TOP_ENTRY_SIZE;
+            buffer.putLong(position, time);
+            buffer.putInt(position + 8, score);
+            if (topSize < TOP_COUNT)
+                topSize++;
+        }
+        buffer.putLong(TOTAL_POSITION, buffer.getLong(TOTAL_POSITION) + 1);
+    }
+
+    /**
+     * Writes recorded scores to the storage device.
+     */
+    public synchronized void flush() {
+        buffer.force();
+    }
+
+    /**
+     * Gets the number of recorded sessions.
+     *
+     * @return Number of sessions.
+     */
+    public synchronized long getTotal() {
+        return buffer.getLong(TOTAL_POSITION);
+    }
+
+    /**
+     * Gets the number of kept best scores.
+     *
+     * @return Number of best scores, at most {@link #TOP_COUNT}.
+     */
+    public synchronized int getTopSize() {
+        return topSize;
+    }
+
+    /**
+     * Gets a best score.
+     *
+     * @param rank Zero based rank of the score.
+     * @return The score.
+     */
+    public synchronized int getTopScore(int rank) {
+        if (rank < 0 || rank >= topSize)
+            throw new IndexOutOfBoundsException("No best score at rank " + rank + ".");
+        return buffer.getInt(TOP_POSITION + rank * TOP_ENTRY_SIZE + 8);
+    }
+
+    /**
+     * Gets the time of a best score.
+     *
+     * @param rank Zero based rank of the score.
+     * @return Time in milliseconds since epoch.
+     */
+    public synchronized long getTopTime(int rank) {
+        if (rank < 0 || rank >= topSize)
+            throw new IndexOutOfBoundsException("No best score at rank " + rank + ".");
+        return buffer.getLong(TOP_POSITION + rank * TOP_ENTRY_SIZE);
+    }
+
+    /**
+     * Gets the personal best.
+     *
+     * @return Best recorded score or {@link Integer#MIN_VALUE} if no score was recorded.
+     */
+    public synchronized int getBest() {
+        return topSize == 0 ? Integer.MIN_VALUE : getTopScore(0);
+    }
+
+    /**
+     * Gets the rank a score has among recorded sessions.
+     *
+     * @param score The score.
+     * @return One plus the number of sessions with a higher score.
+     */
+    public synchronized long getRank(int score) {
+        if (score < MIN_SCORE)
+            return getTotal() + 1;
+        return atLeast(index(score) + 1) + 1;
+    }
+
+    /**
+     * Gets the percentile of a score among recorded sessions.
+     *
+     * @param score The score.
+     * @return Percentage of sessions scoring at most the score, 100 if no session was recorded.
+     */
+    public synchronized double getPercentile(int score) {
+        long total = getTotal();
+        if (total == 0)
+            return 100;
+        return 100.0 * (total - (getRank(score) - 1)) / total;
+    }
+
+    /**
+     * Closes the file. The mapping stays valid until it is garbage collected.
+     *
+     * @throws IOException If closing fails.
+     */
+    public synchronized void close() throws IOException {
+        buffer.force();
+        file.close();
+    }
+}
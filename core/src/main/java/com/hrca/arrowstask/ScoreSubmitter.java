@@ -0,0 +1,198 @@
+package com.hrca.arrowstask;
+
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Submits scores compacted in {@link ScoreWindows} to a leaderboard.
+ * A leaderboard only keeps the best score of a player per window, so only the best unsent score is sent,
+ * in a single call, and nothing is sent when it would not change any window of the leaderboard.
+ * The sync cursors move only after the service accepted the score.
+ * Failed submissions are retried with exponential backoff and random jitter.
+ * All methods must be called on the executor thread, which also runs callbacks and retries.
+ */
+public class ScoreSubmitter {
+    /**
+     * Default delay before the first retry in milliseconds.
+     */
+    public static final long DEFAULT_INITIAL_BACKOFF = 1000;
+    /**
+     * Default longest delay between retries in milliseconds.
+     */
+    public static final long DEFAULT_MAX_BACKOFF = 5 * 60 * 1000;
+    /**
+     * Best scores and sync cursors of the leaderboard windows.
+     */
+    private final ScoreWindows windows;
+    /**
+     * Single thread executor confining the state of the submitter.
+     */
+    private final ScheduledExecutorService executor;
+    /**
+     * Random number generator for backoff jitter.
+     */
+    private final Random random;
+    /**
+     * Delay before the first retry in milliseconds.
+     */
+    private final long initialBackoff;
+    /**
+     * Longest delay between retries in milliseconds.
+     */
+    private final long maxBackoff;
+    /**
+     * Service to submit to or null if none was set.
+     */
+    private LeaderboardService service;
+    /**
+     * Leaderboard to submit to.
+     */
+    private String leaderboardId;
+    /**
+     * True while a submission waits for the service.
+     */
+    private boolean inFlight;
+    /**
+     * True if submission was requested while another was in flight.
+     */
+    private boolean submitAgain;
+    /**
+     * Number of consecutive failed submissions.
+     */
+    private int failures;
+    /**
+     * Scheduled retry or null if none is scheduled.
+     */
+    private ScheduledFuture<?> retry;
+
+    /**
+     * Creates a submitter with default backoff.
+     *
+     * @param windows  Best scores and sync cursors of the leaderboard windows.
+     * @param executor Single thread executor confining the submitter.
+     */
+    public ScoreSubmitter(ScoreWindows windows, ScheduledExecutorService executor) {
+        this(windows, executor, new Random(), DEFAULT_INITIAL_BACKOFF, DEFAULT_MAX_BACKOFF);
+    }
+
+    /**
+     * @param windows        Best scores and sync cursors of the leaderboard windows.
+     * @param executor       Single thread executor confining the submitter.
+     * @param random         Random number generator for backoff jitter.
+     * @param initialBackoff Delay before the first retry in milliseconds.
+     * @param maxBackoff     Longest delay between retries in milliseconds.
+     */
+    public ScoreSubmitter(ScoreWindows windows, ScheduledExecutorService executor, Random random,
+                          long initialBackoff, long maxBackoff) {
+        this.windows = windows;
+        this.executor = executor;
+        this.random = random;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * Submits the best pending score if the leaderboard does not have it, unless a submission is already in flight.
+     * A scheduled retry is replaced by an immediate attempt.
+     *
+     * @param service       Service to submit to, also used for following retries.
+     * @param leaderboardId Leaderboard to submit to.
+     */
+    public void submit(LeaderboardService service, String leaderboardId) {
+        this.service = service;
+        this.leaderboardId = leaderboardId;
+        if (retry != null) {
+            retry.cancel(false);
+            retry = null;
+        }
+        if (inFlight) {
+            submitAgain = true;
+            return;
+        }
+        submitPending();
+    }
+
+    /**
+     * Gets the number of consecutive failed submissions.
+     *
+     * @return Number of failures since the last success.
+     */
+    public int getFailures() {
+        return failures;
+    }
+
+    /**
+     * Sends the best pending score to the service.
+     */
+    private void submitPending() {
+        final long time = System.currentTimeMillis();
+        final int best = windows.getPendingScore(time);
+        if (best == ScoreWindows.NONE)
+            return;
+
+        inFlight = true;
+        service.submitScore(leaderboardId, best, new LeaderboardService.Callback() {
+            @Override
+            public void onSuccess() {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        onSubmitted(best, time);
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        inFlight = false;
+                        scheduleRetry();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Moves the sync cursors past the submitted score and submits better scores queued in the meantime.
+     *
+     * @param score Submitted score.
+     * @param time  Time of the submission in milliseconds since epoch.
+     */
+    private void onSubmitted(int score, long time) {
+        inFlight = false;
+        failures = 0;
+        // a cursor lost by a crash before the flush only makes the score be submitted again
+        windows.acknowledge(score, time);
+        windows.flush();
+        if (submitAgain || windows.getPendingScore(System.currentTimeMillis()) != ScoreWindows.NONE) {
+            submitAgain = false;
+            submitPending();
+        }
+    }
+
+    /**
+     * Schedules a retry after a failed submission.
+     */
+    private void scheduleRetry() {
+        submitAgain = false;
+        failures++;
+        // exponential backoff with full jitter
+        long ceiling = initialBackoff << Math.min(failures - 1, 30);
+        if (ceiling <= 0 || ceiling > maxBackoff)
+            ceiling = maxBackoff;
+        long delay = (long) (random.nextDouble() * ceiling);
+        retry = executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                retry = null;
+                if (!inFlight)
+                    submitPending();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+}
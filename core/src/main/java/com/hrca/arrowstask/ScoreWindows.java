@@ -0,0 +1,265 @@
+package com.hrca.arrowstask;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.TimeZone;
+
+/**
+ * Scores waiting for a leaderboard, compacted into a single unsent best score, in a memory-mapped file of fixed size.
+ * A leaderboard counts every submission for the daily, weekly and all-time windows current when it is submitted,
+ * so of all scores recorded offline only the best one needs to be uploaded, even if it was achieved in a day
+ * or week which ended since.
+ * Next to the unsent score the file keeps the sync cursor of each current window: the best score the leaderboard
+ * is known to have for that window. The unsent score is uploaded only if it is above the cursor of some window,
+ * so no matter how many sessions were played offline, a reconnect uploads at most one score, and none if it would
+ * not change the leaderboard. A window which ended is replaced by the next one with an empty cursor.
+ * Windows follow the resets of Play Games leaderboards: days start at midnight Pacific time and weeks on Sunday.
+ */
+public class ScoreWindows {
+    /**
+     * Window of the current day.
+     */
+    public static final int DAILY = 0;
+    /**
+     * Window of the current week.
+     */
+    public static final int WEEKLY = 1;
+    /**
+     * Window of all time.
+     */
+    public static final int ALL_TIME = 2;
+    /**
+     * Number of windows.
+     */
+    public static final int WINDOW_COUNT = 3;
+    /**
+     * Score of a window without any score.
+     */
+    public static final int NONE = Integer.MIN_VALUE;
+    /**
+     * Length of a day in milliseconds.
+     */
+    public static final long DAY = 24 * 60 * 60 * 1000L;
+    /**
+     * Time zone of the leaderboard resets.
+     */
+    public static final TimeZone RESET_TIME_ZONE = TimeZone.getTimeZone("America/Los_Angeles");
+
+    /**
+     * Identifies a score windows file.
+     */
+    private static final int MAGIC = 0x41525357;
+    /**
+     * Version of the file format.
+     */
+    private static final int VERSION = 1;
+    /**
+     * Position of the best score which was not uploaded yet.
+     */
+    private static final int UNSENT_POSITION = 8;
+    /**
+     * Position of the first window entry.
+     */
+    private static final int WINDOWS_POSITION = 12;
+    /**
+     * Size of a window entry: index of the window and best uploaded score.
+     */
+    private static final int WINDOW_ENTRY_SIZE = 8 + 4;
+    /**
+     * Size of the file.
+     */
+    private static final int FILE_SIZE = WINDOWS_POSITION + WINDOW_COUNT * WINDOW_ENTRY_SIZE;
+
+    /**
+     * Opened file.
+     */
+    private final RandomAccessFile file;
+    /**
+     * Whole file mapped into memory.
+     */
+    private final MappedByteBuffer buffer;
+
+    /**
+     * Opens score windows, creating the file if it does not exist.
+     *
+     * @param path Score windows file.
+     * @throws IOException If the file cannot be mapped or is not a score windows file.
+     */
+    public ScoreWindows(File path) throws IOException {
+        file = new RandomAccessFile(path, "rw");
+        try {
+            boolean created = file.length() == 0;
+            if (!created && file.length() != FILE_SIZE)
+                throw new IOException("Not a score windows file.");
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+            if (created) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(UNSENT_POSITION, NONE);
+                for (int window = 0; window < WINDOW_COUNT; window++) {
+                    buffer.putInt(position(window) + 8, NONE);
+                }
+            } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not a score windows file.");
+            }
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the index of the window containing a time.
+     *
+     * @param window {@link #DAILY}, {@link #WEEKLY} or {@link #ALL_TIME}.
+     * @param time   Time in milliseconds since epoch.
+     * @return Number of days or weeks since epoch in the reset time zone, 0 for all time.
+     */
+    public static long windowOf(int window, long time) {
+        switch (window) {
+            case DAILY:
+                return localDay(time);
+            case WEEKLY:
+                // the epoch was on a Thursday, four days after the Sunday starting its week
+                return floorDivide(localDay(time) + 4, 7);
+            case ALL_TIME:
+                return 0;
+            default:
+                throw new IllegalArgumentException("Unknown window " + window + ".");
+        }
+    }
+
+    /**
+     * Gets the day containing a time in the reset time zone, including daylight saving time.
+     *
+     * @param time Time in milliseconds since epoch.
+     * @return Number of days since epoch.
+     */
+    private static long localDay(long time) {
+        return floorDivide(time + RESET_TIME_ZONE.getOffset(time), DAY);
+    }
+
+    /**
+     * Divides rounding towards negative infinity.
+     *
+     * @param dividend Dividend.
+     * @param divisor  Positive divisor.
+     * @return Largest integer not greater than the quotient.
+     */
+    private static long floorDivide(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        return dividend % divisor < 0 ? quotient - 1 : quotient;
+    }
+
+    /**
+     * Gets the position of a window entry.
+     *
+     * @param window The window.
+     * @return Position in the file.
+     */
+    private static int position(int window) {
+        return WINDOWS_POSITION + window * WINDOW_ENTRY_SIZE;
+    }
+
+    /**
+     * Moves windows which ended to the windows containing a time, emptying their sync cursors.
+     * The unsent score is kept, uploading it now counts for the new windows.
+     *
+     * @param time Time in milliseconds since epoch.
+     */
+    private void roll(long time) {
+        for (int window = 0; window < WINDOW_COUNT; window++) {
+            long index = windowOf(window, time);
+            int position = position(window);
+            if (index > buffer.getLong(position)) {
+                buffer.putLong(position, index);
+                buffer.putInt(position + 8, NONE);
+            }
+        }
+    }
+
+    /**
+     * Records the score of a session.
+     * The change is visible immediately, {@link #flush()} writes it to the storage device.
+     *
+     * @param time  Time the score was achieved in milliseconds since epoch.
+     * @param score The score.
+     */
+    public synchronized void record(long time, int score) {
+        roll(time);
+        if (score > buffer.getInt(UNSENT_POSITION))
+            buffer.putInt(UNSENT_POSITION, score);
+    }
+
+    /**
+     * Gets the score to upload to bring every current window of the leaderboard up to date.
+     * An unsent score which would not change any window is dropped.
+     *
+     * @param now Current time in milliseconds since epoch.
+     * @return Best unsent score if it is above the sync cursor of a window or {@link #NONE}.
+     */
+    public synchronized int getPendingScore(long now) {
+        roll(now);
+        int unsent = buffer.getInt(UNSENT_POSITION);
+        if (unsent == NONE)
+            return NONE;
+        for (int window = 0; window < WINDOW_COUNT; window++) {
+            if (unsent > buffer.getInt(position(window) + 8))
+                return unsent;
+        }
+        // the leaderboard already has a better score in every window, like when the score was submitted right away
+        buffer.putInt(UNSENT_POSITION, NONE);
+        return NONE;
+    }
+
+    /**
+     * Moves the sync cursors after the leaderboard accepted a score.
+     * The score counts for the windows current at the time it was submitted.
+     *
+     * @param score Accepted score.
+     * @param time  Time the score was submitted in milliseconds since epoch.
+     */
+    public synchronized void acknowledge(int score, long time) {
+        roll(time);
+        for (int window = 0; window < WINDOW_COUNT; window++) {
+            int position = position(window);
+            if (buffer.getLong(position) == windowOf(window, time) && score > buffer.getInt(position + 8))
+                buffer.putInt(position + 8, score);
+        }
+        // scores recorded while the submission was in flight stay unsent if they are better
+        if (score >= buffer.getInt(UNSENT_POSITION))
+            buffer.putInt(UNSENT_POSITION, NONE);
+    }
+
+    /**
+     * Gets the sync cursor of a window.
+     *
+     * @param window {@link #DAILY}, {@link #WEEKLY} or {@link #ALL_TIME}.
+     * @param now    Current time in milliseconds since epoch.
+     * @return Best score the leaderboard accepted for the current window or {@link #NONE}.
+     */
+    public synchronized int getSynced(int window, long now) {
+        roll(now);
+        return buffer.getInt(position(window) + 8);
+    }
+
+    /**
+     * Writes the unsent score and sync cursors to the storage device.
+     */
+    public synchronized void flush() {
+        buffer.force();
+    }
+
+    /**
+     * Closes the file. The mapping stays valid until it is garbage collected.
+     *
+     * @throws IOException If closing fails.
+     */
+    public synchronized void close() throws IOException {
+        buffer.force();
+        file.close();
+    }
+}
@@ -0,0 +1,127 @@
+package com.hrca.arrowstask;
+
+/**
+ * Countdown of a task session on a monotonic clock.
+ * The clock does not read time itself; every call takes the current time in nanoseconds
+ * of a monotonic time base, such as frame times, so all decisions of a frame use the same instant.
+ * While running only the deadline is stored, so late or skipped updates never accumulate drift.
+ */
+public class SessionClock {
+    /**
+     * Total duration of the session in nanoseconds.
+     */
+    private final long duration;
+    /**
+     * Remaining time while paused in nanoseconds.
+     */
+    private long remaining;
+    /**
+     * Time at which the session ends while running.
+     */
+    private long deadline;
+    /**
+     * Whether the countdown is running.
+     */
+    private boolean running;
+
+    /**
+     * @param duration Total duration of the session in nanoseconds.
+     */
+    public SessionClock(long duration) {
+        this(duration, duration);
+    }
+
+    /**
+     * @param duration  Total duration of the session in nanoseconds.
+     * @param remaining Remaining time of a resumed session in nanoseconds.
+     */
+    public SessionClock(long duration, long remaining) {
+        if (duration <= 0)
+            throw new IllegalArgumentException("Duration must be positive.");
+        this.duration = duration;
+        this.remaining = remaining < 0 ? 0 : remaining > duration ? duration : remaining;
+    }
+
+    /**
+     * Starts or resumes the countdown. Does nothing if it is already running.
+     *
+     * @param now Current time in nanoseconds.
+     */
+    public void start(long now) {
+        if (!running) {
+            deadline = now + remaining;
+            running = true;
+        }
+    }
+
+    /**
+     * Pauses the countdown keeping the remaining time. Does nothing if it is not running.
+     *
+     * @param now Current time in nanoseconds.
+     */
+    public void pause(long now) {
+        if (running) {
+            remaining = getRemaining(now);
+            running = false;
+        }
+    }
+
+    /**
+     * Stops the countdown and restores the whole duration.
+     */
+    public void reset() {
+        remaining = duration;
+        running = false;
+    }
+
+    /**
+     * Checks if the countdown is running.
+     *
+     * @return True between start and pause.
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Gets the total duration of the session.
+     *
+     * @return Duration in nanoseconds.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Gets the remaining time.
+     *
+     * @param now Current time in nanoseconds.
+     * @return Remaining time in nanoseconds, never negative.
+     */
+    public long getRemaining(long now) {
+        if (!running)
+            return remaining;
+        long left = deadline - now;
+        return left < 0 ? 0 : left;
+    }
+
+    /**
+     * Gets the elapsed time.
+     *
+     * @param now Current time in nanoseconds.
+     * @return Elapsed time in nanoseconds.
+     */
+    public long getElapsed(long now) {
+        return duration - getRemaining(now);
+    }
+
+    /**
+     * Checks if the deadline passed.
+     *
+     * @param now Current time in nanoseconds.
+     * @return True if no time remains.
+     */
+    public boolean isExpired(long now) {
+        return getRemaining(now) == 0;
+    }
+}
@@ -0,0 +1,323 @@
+package com.hrca.arrowstask;
+
+import java.util.Arrays;
+
+/**
+ * Compact binary log of a task session.
+ * The log is a stream of records, each starting with a varint code:
+ * <ul>
+ * <li>a board sequence record, code 1, followed by the board size, number of changes plus one
+ * and the zigzag encoded seed; taps following it apply to boards of that sequence,</li>
+ * <li>a tap record, code {@code cell << 2 | hit << 1}, followed by the time since the previous tap
+ * in milliseconds.</li>
+ * </ul>
+ * Records are written into a preallocated buffer, which only grows when it is full,
+ * so recording a tap does not allocate.
+ */
+public class SessionLog {
+    /**
+     * Default initial capacity in bytes, enough for a minute of fast tapping.
+     */
+    public static final int DEFAULT_CAPACITY = 2048;
+    /**
+     * Code of a board sequence record.
+     */
+    private static final int SEQUENCE_CODE = 1;
+
+    /**
+     * Encoded records.
+     */
+    private byte[] buffer;
+    /**
+     * Number of used bytes of the buffer.
+     */
+    private int length;
+    /**
+     * Number of tap records.
+     */
+    private int tapCount;
+    /**
+     * Time of the last tap in milliseconds or -1 if no tap was recorded.
+     */
+    private long lastTapTime = -1;
+
+    public SessionLog() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity Initial capacity in bytes.
+     */
+    public SessionLog(int capacity) {
+        buffer = new byte[capacity > 16 ? capacity : 16];
+    }
+
+    /**
+     * Restores a log exported by {@link #toByteArray()}.
+     *
+     * @param data Encoded records.
+     * @return Restored log.
+     * @throws IllegalArgumentException If the data is not a valid log.
+     */
+    public static SessionLog fromByteArray(byte[] data) {
+        SessionLog log = new SessionLog(data.length);
+        System.arraycopy(data, 0, log.buffer, 0, data.length);
+        log.length = data.length;
+        Reader reader = log.reader();
+        while (reader.next()) {
+            if (reader.isTap())
+                log.tapCount++;
+        }
+        return log;
+    }
+
+    /**
+     * Starts a new board sequence. Following taps apply to boards of this sequence.
+     *
+     * @param size    Number of rows and columns of each board.
+     * @param seed    Seed of the sequence.
+     * @param changes Number of changes of the sequence or {@link BoardSequence#FULL_REGENERATION}.
+     */
+    public void beginSequence(int size, long seed, int changes) {
+        writeVarint(SEQUENCE_CODE);
+        writeVarint(size);
+        writeVarint(changes + 1);
+        writeVarint((seed << 1) ^ (seed >> 63));
+    }
+
+    /**
+     * Records a tap on a cell of the current board.
+     *
+     * @param cell Index of the tapped cell.
+     * @param hit  Whether the cell contained the up arrow.
+     * @param time Time of the tap in milliseconds of any monotonic time base.
+     */
+    public void recordTap(int cell, boolean hit, long time) {
+        long delta = lastTapTime < 0 || time < lastTapTime ? 0 : time - lastTapTime;
+        lastTapTime = time;
+        writeVarint(((long) cell << 2) | (hit ? 2 : 0));
+        writeVarint(delta);
+        tapCount++;
+    }
+
+    /**
+     * Gets the number of recorded taps.
+     *
+     * @return Number of taps.
+     */
+    public int getTapCount() {
+        return tapCount;
+    }
+
+    /**
+     * Gets the size of the encoded log.
+     *
+     * @return Number of bytes.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Removes all records.
+     */
+    public void clear() {
+        length = 0;
+        tapCount = 0;
+        lastTapTime = -1;
+    }
+
+    /**
+     * Exports the encoded records.
+     *
+     * @return Copy of the encoded records.
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * Creates a reader of the records.
+     *
+     * @return Reader positioned before the first record.
+     */
+    public Reader reader() {
+        return new Reader(buffer, length);
+    }
+
+    /**
+     * Appends an unsigned varint.
+     *
+     * @param value Value to append.
+     */
+    private void writeVarint(long value) {
+        if (length + 10 > buffer.length)
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        while ((value & ~0x7FL) != 0) {
+            buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[length++] = (byte) value;
+    }
+
+    /**
+     * Reads records one by one. The values of the current record are kept in fields, so reading does not allocate.
+     */
+    public static class Reader {
+        /**
+         * Encoded records.
+         */
+        private final byte[] data;
+        /**
+         * Number of valid bytes.
+         */
+        private final int length;
+        /**
+         * Position of the next record.
+         */
+        private int position;
+        /**
+         * Whether the current record is a tap.
+         */
+        private boolean tap;
+        /**
+         * Tapped cell.
+         */
+        private int cell;
+        /**
+         * Whether the tap hit the up arrow.
+         */
+        private boolean hit;
+        /**
+         * Time of the tap since the previous one in milliseconds.
+         */
+        private long delta;
+        /**
+         * Board size of the sequence.
+         */
+        private int size;
+        /**
+         * Number of changes of the sequence.
+         */
+        private int changes;
+        /**
+         * Seed of the sequence.
+         */
+        private long seed;
+
+        Reader(byte[] data, int length) {
+            this.data = data;
+            this.length = length;
+        }
+
+        /**
+         * Moves to the next record.
+         *
+         * @return False if there are no more records.
+         * @throws IllegalArgumentException If the record is malformed.
+         */
+        public boolean next() {
+            if (position >= length)
+                return false;
+            long code = readVarint();
+            if (code == SEQUENCE_CODE) {
+                tap = false;
+                size = (int) readVarint();
+                changes = (int) readVarint() - 1;
+                long zigzag = readVarint();
+                seed = (zigzag >>> 1) ^ -(zigzag & 1);
+                if (size <= 0 || changes < BoardSequence.FULL_REGENERATION)
+                    throw new IllegalArgumentException("Malformed board sequence record.");
+            } else if ((code & 1) == 0) {
+                tap = true;
+                cell = (int) (code >>> 2);
+                hit = (code & 2) != 0;
+                delta = readVarint();
+            } else {
+                throw new IllegalArgumentException("Unknown record code " + code + ".");
+            }
+            return true;
+        }
+
+        /**
+         * Reads an unsigned varint.
+         *
+         * @return Decoded value.
+         */
+        private long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= length)
+                    throw new IllegalArgumentException("Truncated session log.");
+                byte b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0)
+                    return value;
+            }
+            throw new IllegalArgumentException("Malformed varint.");
+        }
+
+        /**
+         * Checks if the current record is a tap.
+         *
+         * @return True for a tap, false for a board sequence record.
+         */
+        public boolean isTap() {
+            return tap;
+        }
+
+        /**
+         * Gets the tapped cell of a tap record.
+         *
+         * @return Index of the cell.
+         */
+        public int getCell() {
+            return cell;
+        }
+
+        /**
+         * Checks if the tap of a tap record hit the up arrow.
+         *
+         * @return True for a hit.
+         */
+        public boolean isHit() {
+            return hit;
+        }
+
+        /**
+         * Gets the time of a tap record since the previous tap.
+         *
+         * @return Time in milliseconds, 0 for the first tap.
+         */
+        public long getDelta() {
+            return delta;
+        }
+
+        /**
+         * Gets the board size of a board sequence record.
+         *
+         * @return Number of rows and columns.
+         */
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * Gets the number of changes of a board sequence record.
+         *
+         * @return Number of changes or {@link BoardSequence#FULL_REGENERATION}.
+         */
+        public int getChanges() {
+            return changes;
+        }
+
+        /**
+         * Gets the seed of a board sequence record.
+         *
+         * @return Seed of the sequence.
+         */
+        public long getSeed() {
+            return seed;
+        }
+    }
+}
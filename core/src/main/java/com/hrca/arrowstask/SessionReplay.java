@@ -0,0 +1,137 @@
+package com.hrca.arrowstask;
+
+/**
+ * Replays a {@link SessionLog} without any view.
+ * Boards are regenerated from the logged sequences and every tap is checked against them,
+ * so the score is recomputed instead of trusted and taps disagreeing with the boards are counted.
+ */
+public class SessionReplay {
+    /**
+     * Receiver of replayed taps.
+     */
+    public interface Listener {
+        /**
+         * Called for every tap in the order of the log.
+         *
+         * @param board Board the tap was made on.
+         * @param cell  Index of the tapped cell.
+         * @param hit   Whether the cell contains the up arrow on the regenerated board.
+         * @param time  Time since the first tap in milliseconds.
+         */
+        void onTap(ArrowBoard board, int cell, boolean hit, long time);
+    }
+
+    /**
+     * Log to replay.
+     */
+    private final SessionLog log;
+    /**
+     * Recomputed score of the last replay.
+     */
+    private TaskScore score;
+    /**
+     * Number of taps of the last replay whose logged result disagrees with the regenerated board.
+     */
+    private int mismatches;
+    /**
+     * Shortest time between two taps of the last replay in milliseconds or -1 if there were less than two taps.
+     */
+    private long shortestInterval;
+    /**
+     * Time since the first tap of the last tap of the last replay in milliseconds.
+     */
+    private long duration;
+
+    /**
+     * @param log Log to replay.
+     */
+    public SessionReplay(SessionLog log) {
+        this.log = log;
+    }
+
+    /**
+     * Replays the log.
+     *
+     * @param listener Receiver of replayed taps or null.
+     * @return Recomputed score.
+     * @throws IllegalArgumentException If the log is malformed, a tap precedes the first board sequence
+     *                                  or a tapped cell is outside of the board.
+     */
+    public TaskScore run(Listener listener) {
+        score = new TaskScore();
+        mismatches = 0;
+        shortestInterval = -1;
+        duration = 0;
+        BoardSequence sequence = null;
+        ArrowBoard board = null;
+        boolean firstTap = true;
+        SessionLog.Reader reader = log.reader();
+        while (reader.next()) {
+            if (!reader.isTap()) {
+                sequence = new BoardSequence(reader.getSize(), reader.getSeed(), reader.getChanges());
+                board = new ArrowBoard(sequence.getSize());
+                sequence.next(board);
+                continue;
+            }
+            if (board == null)
+                throw new IllegalArgumentException("Tap before the first board sequence.");
+            int cell = reader.getCell();
+            if (cell >= board.getCellCount())
+                throw new IllegalArgumentException("Tapped cell " + cell + " is outside of the board.");
+            long delta = reader.getDelta();
+            if (!firstTap && (shortestInterval < 0 || delta < shortestInterval))
+                shortestInterval = delta;
+            firstTap = false;
+            duration += delta;
+            boolean hit = board.isTarget(cell);
+            if (hit != reader.isHit())
+                mismatches++;
+            if (listener != null)
+                listener.onTap(board, cell, hit, duration);
+            if (hit) {
+                score.add(1, 0);
+                sequence.next(board);
+            } else {
+                score.add(0, 1);
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Gets the recomputed score of the last replay.
+     *
+     * @return Score or null if the log was not replayed yet.
+     */
+    public TaskScore getScore() {
+        return score;
+    }
+
+    /**
+     * Gets the number of taps whose logged result disagrees with the regenerated board.
+     * Any mismatch means the log does not come from an unmodified session.
+     *
+     * @return Number of mismatching taps.
+     */
+    public int getMismatches() {
+        return mismatches;
+    }
+
+    /**
+     * Gets the shortest time between two taps.
+     *
+     * @return Time in milliseconds or -1 if there were less than two taps.
+     */
+    public long getShortestInterval() {
+        return shortestInterval;
+    }
+
+    /**
+     * Gets the time from the first to the last tap.
+     *
+     * @return Time in milliseconds.
+     */
+    public long getDuration() {
+        return duration;
+    }
+}
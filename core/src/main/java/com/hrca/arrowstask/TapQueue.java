@@ -0,0 +1,120 @@
+package com.hrca.arrowstask;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands taps from the input thread over to the thread owning the game state.
+ * Taps are kept in a fixed-size ring of preallocated parallel arrays shared by exactly one producer
+ * and one consumer without any locks: offering and draining only move indices, so neither side allocates.
+ */
+public class TapQueue {
+    /**
+     * Default number of taps the queue holds.
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * Receiver of drained taps.
+     */
+    public interface Consumer {
+        /**
+         * Called for every tap in the order the taps were offered.
+         *
+         * @param x    Horizontal position of the tap.
+         * @param y    Vertical position of the tap.
+         * @param time Time of the tap in nanoseconds.
+         */
+        void onTap(float x, float y, long time);
+    }
+
+    /**
+     * Number of slots minus one, the number of slots is a power of two.
+     */
+    private final int mask;
+    /**
+     * Horizontal positions of the taps.
+     */
+    private final float[] xs;
+    /**
+     * Vertical positions of the taps.
+     */
+    private final float[] ys;
+    /**
+     * Times of the taps in nanoseconds.
+     */
+    private final long[] times;
+    /**
+     * Number of taps published by the producer.
+     */
+    private final AtomicLong offered = new AtomicLong();
+    /**
+     * Number of taps released by the consumer.
+     */
+    private final AtomicLong drained = new AtomicLong();
+
+    /**
+     * Creates a queue with default capacity.
+     */
+    public TapQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity Least number of taps the queue holds, rounded up to a power of two.
+     */
+    public TapQueue(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity must be positive.");
+        int slots = Integer.highestOneBit(capacity);
+        if (slots < capacity)
+            slots <<= 1;
+        mask = slots - 1;
+        xs = new float[slots];
+        ys = new float[slots];
+        times = new long[slots];
+    }
+
+    /**
+     * Adds a tap. Must be called only from the producer thread.
+     *
+     * @param x    Horizontal position of the tap.
+     * @param y    Vertical position of the tap.
+     * @param time Time of the tap in nanoseconds.
+     * @return False if the queue is full and the tap was dropped.
+     */
+    public boolean offer(float x, float y, long time) {
+        long index = offered.get();
+        if (index - drained.get() > mask)
+            return false;
+        int slot = (int) index & mask;
+        xs[slot] = x;
+        ys[slot] = y;
+        times[slot] = time;
+        offered.lazySet(index + 1);
+        return true;
+    }
+
+    /**
+     * Passes all taps offered so far to a consumer and removes them. Must be called only from the consumer thread.
+     *
+     * @param consumer Receiver of the taps.
+     * @return Number of drained taps.
+     */
+    public int drain(Consumer consumer) {
+        long first = drained.get();
+        long end = offered.get();
+        for (long index = first; index < end; index++) {
+            int slot = (int) index & mask;
+            consumer.onTap(xs[slot], ys[slot], times[slot]);
+        }
+        drained.lazySet(end);
+        return (int) (end - first);
+    }
+
+    /**
+     * Removes all taps offered so far without passing them on. Must be called only from the consumer thread.
+     */
+    public void clear() {
+        drained.lazySet(offered.get());
+    }
+}
@@ -0,0 +1,131 @@
+package com.hrca.arrowstask;
+
+/**
+ * Streaming statistics of a player's taps in constant memory.
+ * Tap rate, reaction time and accuracy are exponentially weighted moving averages,
+ * so recent taps count most and nothing grows with the length of the session.
+ */
+public class TapStatistics {
+    /**
+     * Default weight of the newest sample.
+     */
+    public static final double DEFAULT_WEIGHT = 0.2;
+
+    /**
+     * Weight of the newest sample.
+     */
+    private final double weight;
+    /**
+     * Average time between two taps in nanoseconds or 0 if unknown.
+     */
+    private double interval;
+    /**
+     * Average time from a board being shown to its hit in nanoseconds or 0 if unknown.
+     */
+    private double reactionTime;
+    /**
+     * Average fraction of taps which hit.
+     */
+    private double accuracy;
+    /**
+     * Number of recorded taps.
+     */
+    private long taps;
+    /**
+     * Time of the last tap or -1 if there was none.
+     */
+    private long lastTap = -1;
+    /**
+     * Time the current board was shown or -1 if unknown.
+     */
+    private long boardShown = -1;
+
+    public TapStatistics() {
+        this(DEFAULT_WEIGHT);
+    }
+
+    /**
+     * @param weight Weight of the newest sample, between 0 exclusive and 1 inclusive.
+     */
+    public TapStatistics(double weight) {
+        if (!(weight > 0 && weight <= 1))
+            throw new IllegalArgumentException("Weight must be in (0, 1].");
+        this.weight = weight;
+    }
+
+    /**
+     * Updates an average with a sample.
+     *
+     * @param average Current average.
+     * @param sample  New sample.
+     * @param first   Whether this is the first sample.
+     * @return Updated average.
+     */
+    private double update(double average, double sample, boolean first) {
+        return first ? sample : average + weight * (sample - average);
+    }
+
+    /**
+     * Records a tap.
+     *
+     * @param hit  Whether the tap hit the up arrow; a hit shows the next board.
+     * @param time Time of the tap in nanoseconds.
+     */
+    public void record(boolean hit, long time) {
+        if (lastTap >= 0 && time >= lastTap)
+            interval = update(interval, time - lastTap, interval == 0);
+        accuracy = update(accuracy, hit ? 1 : 0, taps == 0);
+        if (hit) {
+            if (boardShown >= 0 && time >= boardShown)
+                reactionTime = update(reactionTime, time - boardShown, reactionTime == 0);
+            boardShown = time;
+        }
+        lastTap = time;
+        taps++;
+    }
+
+    /**
+     * Marks the current board as shown now, for example when a new round starts.
+     *
+     * @param time Current time in nanoseconds.
+     */
+    public void onBoardShown(long time) {
+        boardShown = time;
+    }
+
+    /**
+     * Gets the number of recorded taps.
+     *
+     * @return Number of taps.
+     */
+    public long getTaps() {
+        return taps;
+    }
+
+    /**
+     * Gets the average tap rate.
+     *
+     * @return Taps per second or 0 if unknown.
+     */
+    public double getTapRate() {
+        return interval == 0 ? 0 : 1e9 / interval;
+    }
+
+    /**
+     * Gets the average time from a board being shown to its hit.
+     *
+     * @return Reaction time in nanoseconds or 0 if unknown.
+     */
+    public double getReactionTime() {
+        return reactionTime;
+    }
+
+    /**
+     * Gets the average fraction of taps which hit.
+     *
+     * @return Accuracy between 0 and 1, 0 if no tap was recorded.
+     */
+    public double getAccuracy() {
+        return accuracy;
+    }
+}
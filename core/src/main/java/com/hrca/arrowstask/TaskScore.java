@@ -0,0 +1,83 @@
+package com.hrca.arrowstask;
+
+/**
+ * Score of an arrows task.
+ * Every hit adds a point and every miss takes one away.
+ */
+public class TaskScore {
+    /**
+     * Number of hit arrows.
+     */
+    private int hits;
+    /**
+     * Number of miss clicks.
+     */
+    private int misses;
+
+    public TaskScore() {
+    }
+
+    /**
+     * @param hits   Number of hit arrows.
+     * @param misses Number of miss clicks.
+     */
+    public TaskScore(int hits, int misses) {
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    /**
+     * Adds clicks to the score.
+     *
+     * @param hits   Number of hit arrows.
+     * @param misses Number of miss clicks.
+     */
+    public void add(int hits, int misses) {
+        this.hits += hits;
+        this.misses += misses;
+    }
+
+    /**
+     * Removes all clicks.
+     */
+    public void reset() {
+        hits = 0;
+        misses = 0;
+    }
+
+    /**
+     * Gets the number of hit arrows.
+     *
+     * @return Number of hits.
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of miss clicks.
+     *
+     * @return Number of misses.
+     */
+    public int getMisses() {
+        return misses;
+    }
+
+    /**
+     * Checks if any click was made.
+     *
+     * @return True if there was at least one hit or miss.
+     */
+    public boolean isStarted() {
+        return hits != 0 || misses != 0;
+    }
+
+    /**
+     * Gets the score.
+     *
+     * @return Number of hits minus number of misses.
+     */
+    public int getScore() {
+        return hits - misses;
+    }
+}
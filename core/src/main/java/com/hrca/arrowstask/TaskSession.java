@@ -0,0 +1,217 @@
+package com.hrca.arrowstask;
+
+/**
+ * Rules of a single arrows task, independent of any platform.
+ * The countdown starts with the first click and the session finishes once the deadline passes;
+ * clicks at or after the deadline do not count, whether the session or the caller resolves them. The result is the number of hits minus the number of misses.
+ * The session never reads time itself, every call takes the current time in nanoseconds,
+ * so it can be driven by real frame times as well as by a virtual clock.
+ */
+public class TaskSession {
+    /**
+     * Default duration of a session in nanoseconds.
+     */
+    public static final long DEFAULT_DURATION = 60 * 1000000000L;
+
+    /**
+     * Sequence of boards or null if clicks are resolved by the caller.
+     */
+    private final BoardSequence sequence;
+    /**
+     * Current board or null if clicks are resolved by the caller.
+     */
+    private final ArrowBoard board;
+    /**
+     * Countdown of the session.
+     */
+    private final SessionClock clock;
+    /**
+     * Hits and misses.
+     */
+    private final TaskScore score;
+    /**
+     * Log of taps or null if not logged.
+     */
+    private SessionLog log;
+    /**
+     * Whether the deadline passed.
+     */
+    private boolean finished;
+
+    /**
+     * Creates a session whose clicks are resolved by the caller, see {@link #addClicks(int, int, long)}.
+     *
+     * @param duration  Total duration in nanoseconds.
+     * @param remaining Remaining time in nanoseconds.
+     * @param score     Score achieved so far.
+     */
+    public TaskSession(long duration, long remaining, TaskScore score) {
+        this.sequence = null;
+        this.board = null;
+        this.clock = new SessionClock(duration, remaining);
+        this.score = score;
+    }
+
+    /**
+     * Creates a new session resolving taps on its own boards, see {@link #tap(int, long)}.
+     *
+     * @param sequence Sequence of boards.
+     * @param duration Total duration in nanoseconds.
+     */
+    public TaskSession(BoardSequence sequence, long duration) {
+        this.sequence = sequence;
+        this.board = new ArrowBoard(sequence.getSize());
+        this.clock = new SessionClock(duration);
+        this.score = new TaskScore();
+        sequence.next(board);
+    }
+
+    /**
+     * Sets a log of taps. The board sequence is logged immediately.
+     *
+     * @param log The log or null to stop logging.
+     */
+    public void setLog(SessionLog log) {
+        this.log = log;
+        if (log != null && sequence != null)
+            log.beginSequence(sequence.getSize(), sequence.getSeed(), sequence.getChanges());
+    }
+
+    /**
+     * Gets the current board.
+     *
+     * @return Board to tap on or null if clicks are resolved by the caller.
+     */
+    public ArrowBoard getBoard() {
+        return board;
+    }
+
+    /**
+     * Taps a cell of the current board, generating the next board on a hit.
+     *
+     * @param cell Index of the tapped cell.
+     * @param now  Current time in nanoseconds.
+     * @return True if the tap hit the up arrow and counted.
+     * @throws IllegalStateException If clicks are resolved by the caller.
+     */
+    public boolean tap(int cell, long now) {
+        if (board == null)
+            throw new IllegalStateException("Session has no boards.");
+        if (update(now))
+            return false;
+        boolean hit = board.isTarget(cell);
+        if (log != null)
+            log.recordTap(cell, hit, now / 1000000L);
+        if (hit) {
+            addClicks(1, 0, now);
+            sequence.next(board);
+        } else {
+            addClicks(0, 1, now);
+        }
+        return hit;
+    }
+
+    /**
+     * Adds clicks resolved by the caller and starts the countdown if it is not running.
+     * Clicks at or after the deadline are ignored and finish the session.
+     *
+     * @param hits   Number of clicks on the up arrow.
+     * @param misses Number of clicks on other arrows.
+     * @param now    Time of the clicks in nanoseconds.
+     * @return False if the session already finished.
+     */
+    public boolean addClicks(int hits, int misses, long now) {
+        if (update(now))
+            return false;
+        clock.start(now);
+        score.add(hits, misses);
+        return true;
+    }
+
+    /**
+     * Starts a new round in place with the whole duration and no clicks.
+     * Sessions with own boards continue their board sequence.
+     */
+    public void reset() {
+        clock.reset();
+        score.reset();
+        finished = false;
+    }
+
+    /**
+     * Checks the deadline.
+     *
+     * @param now Current time in nanoseconds.
+     * @return True if the session finished.
+     */
+    public boolean update(long now) {
+        if (!finished && clock.isExpired(now))
+            finished = true;
+        return finished;
+    }
+
+    /**
+     * Continues the countdown after a pause if the session already started.
+     *
+     * @param now Current time in nanoseconds.
+     */
+    public void resume(long now) {
+        if (score.isStarted() && !finished)
+            clock.start(now);
+    }
+
+    /**
+     * Pauses the countdown.
+     *
+     * @param now Current time in nanoseconds.
+     */
+    public void pause(long now) {
+        clock.pause(now);
+    }
+
+    /**
+     * Checks if the countdown is running.
+     *
+     * @return True between the first click or resume and pause or the end of the session.
+     */
+    public boolean isRunning() {
+        return clock.isRunning() && !finished;
+    }
+
+    /**
+     * Checks if the deadline passed.
+     *
+     * @return True if the session finished.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Gets the remaining time.
+     *
+     * @param now Current time in nanoseconds.
+     * @return Remaining time in nanoseconds.
+     */
+    public long getRemaining(long now) {
+        return clock.getRemaining(now);
+    }
+
+    /**
+     * Gets the hits and misses.
+     *
+     * @return Score of the session.
+     */
+    public TaskScore getScore() {
+        return score;
+    }
+
+    /**
+     * Gets the result of the session.
+     *
+     * @return Number of hits minus number of misses.
+     */
+    public int getResult() {
+        return score.getScore();
+    }
+}
@@ -0,0 +1,195 @@
+package com.hrca.arrowstask;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Plays many task sessions with simulated players in parallel.
+ * Each session runs on a virtual clock advanced by the simulated reaction times,
+ * so a whole minute of play takes only the time needed to apply the rules.
+ * Session {@code i} uses seed {@code seed + i} for both its boards and its player,
+ * so results do not depend on the number of threads.
+ */
+public class TaskSimulator {
+    /**
+     * Maximum number of sessions simulated by a single task without splitting.
+     */
+    private static final int SESSIONS_PER_TASK = 64;
+
+    /**
+     * Simulated player.
+     */
+    public static class Player {
+        /**
+         * Mean time between two taps in nanoseconds.
+         */
+        private final long meanReaction;
+        /**
+         * Maximum deviation from the mean time between two taps in nanoseconds.
+         */
+        private final long reactionJitter;
+        /**
+         * Probability of a tap on the up arrow.
+         */
+        private final double accuracy;
+
+        /**
+         * @param meanReaction   Mean time between two taps in nanoseconds.
+         * @param reactionJitter Maximum deviation from the mean time between two taps in nanoseconds.
+         * @param accuracy       Probability of a tap on the up arrow.
+         */
+        public Player(long meanReaction, long reactionJitter, double accuracy) {
+            if (meanReaction <= 0 || reactionJitter < 0 || reactionJitter >= meanReaction)
+                throw new IllegalArgumentException("Reaction jitter must be less than the positive mean reaction.");
+            this.meanReaction = meanReaction;
+            this.reactionJitter = reactionJitter;
+            this.accuracy = accuracy;
+        }
+
+        /**
+         * Draws the time until the next tap.
+         *
+         * @param random Random number generator of the session.
+         * @return Time in nanoseconds.
+         */
+        long nextReaction(Random random) {
+            if (reactionJitter == 0)
+                return meanReaction;
+            return meanReaction - reactionJitter + (long) (random.nextDouble() * 2 * reactionJitter);
+        }
+
+        /**
+         * Chooses the cell to tap.
+         *
+         * @param board  Current board.
+         * @param random Random number generator of the session.
+         * @return Index of the cell.
+         */
+        int chooseCell(ArrowBoard board, Random random) {
+            int target = board.getTarget();
+            int cellCount = board.getCellCount();
+            if (cellCount == 1 || random.nextDouble() < accuracy)
+                return target;
+            // any cell but the target
+            return (target + 1 + random.nextInt(cellCount - 1)) % cellCount;
+        }
+    }
+
+    /**
+     * Pool running the sessions.
+     */
+    private final ForkJoinPool pool;
+    /**
+     * Number of rows and columns of the boards.
+     */
+    private final int size;
+    /**
+     * Number of changes of the board sequences.
+     */
+    private final int changes;
+    /**
+     * Duration of a session in nanoseconds.
+     */
+    private final long duration;
+
+    /**
+     * @param pool     Pool running the sessions.
+     * @param size     Number of rows and columns of the boards.
+     * @param changes  Number of changes of the board sequences or {@link BoardSequence#FULL_REGENERATION}.
+     * @param duration Duration of a session in nanoseconds.
+     */
+    public TaskSimulator(ForkJoinPool pool, int size, int changes, long duration) {
+        this.pool = pool;
+        this.size = size;
+        this.changes = changes;
+        this.duration = duration;
+    }
+
+    /**
+     * Simulates a single session.
+     *
+     * @param player Simulated player.
+     * @param seed   Seed of the boards and the player.
+     * @return Result of the session.
+     */
+    public int simulate(Player player, long seed) {
+        TaskSession session = new TaskSession(new BoardSequence(size, seed, changes), duration);
+        Random random = new Random(~seed);
+        // virtual clock, the countdown starts with the first tap
+        long now = 0;
+        do {
+            session.tap(player.chooseCell(session.getBoard(), random), now);
+            now += player.nextReaction(random);
+        } while (!session.update(now));
+        return session.getResult();
+    }
+
+    /**
+     * Simulates sessions on all threads of the pool.
+     *
+     * @param player Simulated player.
+     * @param seed   Seed of the first session.
+     * @param count  Number of sessions.
+     * @return Results of the sessions, indexed by session.
+     */
+    public int[] simulate(Player player, long seed, int count) {
+        int[] results = new int[count];
+        pool.invoke(new Batch(this, player, seed, results, 0, count));
+        return results;
+    }
+
+    /**
+     * Range of sessions, split until it is small enough.
+     */
+    private static class Batch extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Simulator playing the sessions.
+         */
+        private final TaskSimulator simulator;
+        /**
+         * Simulated player.
+         */
+        private final Player player;
+        /**
+         * Seed of the first session of the whole simulation.
+         */
+        private final long seed;
+        /**
+         * Results of all sessions of the simulation.
+         */
+        private final int[] results;
+        /**
+         * First session of the range.
+         */
+        private final int from;
+        /**
+         * Session after the last one of the range.
+         */
+        private final int to;
+
+        Batch(TaskSimulator simulator, Player player, long seed, int[] results, int from, int to) {
+            this.simulator = simulator;
+            this.player = player;
+            this.seed = seed;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SESSIONS_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    results[i] = simulator.simulate(player, seed + i);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Batch(simulator, player, seed, results, from, middle),
+                    new Batch(simulator, player, seed, results, middle, to));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.hrca.arrowstask;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Bit-packed cells, target tracking and diffing of {@link ArrowBoard}.
+ */
+public class ArrowBoardTest {
+    /**
+     * Board size whose cells span more than one word and end within the last one.
+     */
+    private static final int SIZE = 9;
+
+    @Test
+    public void newBoardHasUpArrowsWithoutTarget() {
+        ArrowBoard board = new ArrowBoard(SIZE);
+        assertEquals(SIZE * SIZE, board.getCellCount());
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            assertEquals(ArrowBoard.UP, board.get(cell));
+        }
+        assertEquals(-1, board.getTarget());
+    }
+
+    @Test
+    public void setsEveryArrowWithoutTouchingNeighbours() {
+        ArrowBoard board = new ArrowBoard(SIZE);
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            board.set(cell, cell % (ArrowBoard.ARROW_COUNT - 1) + 1);
+        }
+        // cells around the boundary of the first and second word
+        for (int cell = 30; cell < 34; cell++) {
+            for (int arrow = 0; arrow < ArrowBoard.ARROW_COUNT; arrow++) {
+                board.set(cell, arrow);
+                assertEquals(arrow, board.get(cell));
+                assertEquals((cell - 1) % (ArrowBoard.ARROW_COUNT - 1) + 1, board.get(cell - 1));
+                assertEquals((cell + 1) % (ArrowBoard.ARROW_COUNT - 1) + 1, board.get(cell + 1));
+            }
+            board.set(cell, cell % (ArrowBoard.ARROW_COUNT - 1) + 1);
+        }
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            assertEquals(cell % (ArrowBoard.ARROW_COUNT - 1) + 1, board.get(cell));
+        }
+    }
+
+    @Test
+    public void tracksTarget() {
+        ArrowBoard board = new ArrowBoard(SIZE);
+        board.set(40, ArrowBoard.DOWN);
+        board.set(40, ArrowBoard.UP);
+        assertEquals(40, board.getTarget());
+        assertTrue(board.isTarget(40));
+        // the last set up arrow is the target
+        board.set(80, ArrowBoard.UP);
+        assertEquals(80, board.getTarget());
+        // overwriting another cell keeps the target
+        board.set(40, ArrowBoard.LEFT);
+        assertEquals(80, board.getTarget());
+        assertFalse(board.isTarget(40));
+        // overwriting the target clears it
+        board.set(80, ArrowBoard.RIGHT);
+        assertEquals(-1, board.getTarget());
+    }
+
+    @Test
+    public void copiesCellsAndTarget() {
+        ArrowBoard board = new ArrowBoard(SIZE);
+        board.set(3, ArrowBoard.LEFT);
+        board.set(70, ArrowBoard.UP);
+        ArrowBoard copy = new ArrowBoard(SIZE);
+        copy.copyFrom(board);
+        assertEquals(board, copy);
+        assertEquals(board.hashCode(), copy.hashCode());
+        assertEquals(70, copy.getTarget());
+    }
+
+    @Test
+    public void diffFindsChangedCellsInAscendingOrder() {
+        ArrowBoard board = new ArrowBoard(SIZE);
+        ArrowBoard other = new ArrowBoard(SIZE);
+        int[] changed = new int[board.getCellCount()];
+        assertEquals(0, board.diff(other, changed));
+
+        // differing in the low bit, the high bit and both, across word boundaries
+        other.set(80, ArrowBoard.RIGHT);
+        other.set(0, ArrowBoard.DOWN);
+        other.set(32, ArrowBoard.LEFT);
+        other.set(31, ArrowBoard.RIGHT);
+        int count = board.diff(other, changed);
+        assertEquals(4, count);
+        int[] expected = {0, 31, 32, 80};
+        int[] actual = new int[count];
+        System.arraycopy(changed, 0, actual, 0, count);
+        assertArrayEquals(expected, actual);
+        assertEquals(count, other.diff(board, changed));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void diffRejectsOtherSize() {
+        new ArrowBoard(SIZE).diff(new ArrowBoard(SIZE + 1), new int[SIZE * SIZE]);
+    }
+}
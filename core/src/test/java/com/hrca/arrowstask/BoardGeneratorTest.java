@@ -0,0 +1,66 @@
+package com.hrca.arrowstask;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Order of boards prefetched through the ring of {@link BoardGenerator}.
+ */
+public class BoardGeneratorTest {
+    private static final int SIZE = 8;
+    private static final long SEED = 42;
+    /**
+     * Number of boards taken, several times the ring capacity.
+     */
+    private static final int BOARD_COUNT = 200;
+
+    /**
+     * Takes boards from a generator and checks they follow the sequence generated directly.
+     *
+     * @param generator Generator of a sequence of {@link #SIZE} and {@link #SEED} with partial changes.
+     * @param count     Number of boards to take.
+     * @param expected  Sequence generating the expected boards.
+     */
+    private static void assertFollowsSequence(BoardGenerator generator, int count, BoardSequence expected) {
+        ArrowBoard board = new ArrowBoard(SIZE);
+        for (int i = 0; i < count; i++) {
+            expected.next(board);
+            ArrowBoard next = generator.next();
+            assertEquals("Board " + i, board, next);
+            assertEquals(board.getTarget(), next.getTarget());
+            assertTrue(next.isTarget(next.getTarget()));
+        }
+    }
+
+    @Test
+    public void producerKeepsSequenceOrder() {
+        BoardGenerator generator = new BoardGenerator(new BoardSequence(SIZE, SEED, 3), 2);
+        generator.start();
+        try {
+            assertFollowsSequence(generator, BOARD_COUNT, new BoardSequence(SIZE, SEED, 3));
+        } finally {
+            generator.stop();
+        }
+    }
+
+    @Test
+    public void stoppedGeneratorKeepsSequenceOrder() {
+        BoardGenerator generator = new BoardGenerator(new BoardSequence(SIZE, SEED, 3));
+        assertFollowsSequence(generator, BOARD_COUNT, new BoardSequence(SIZE, SEED, 3));
+    }
+
+    @Test
+    public void restartsContinueTheSequence() {
+        BoardGenerator generator = new BoardGenerator(new BoardSequence(SIZE, SEED, 3));
+        BoardSequence expected = new BoardSequence(SIZE, SEED, 3);
+        for (int round = 0; round < 10; round++) {
+            generator.start();
+            assertFollowsSequence(generator, BOARD_COUNT / 20, expected);
+            generator.stop();
+            // boards prefetched before the stop come first
+            assertFollowsSequence(generator, BOARD_COUNT / 20, expected);
+        }
+    }
+}
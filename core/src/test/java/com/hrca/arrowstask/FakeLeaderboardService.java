@@ -0,0 +1,111 @@
+package com.hrca.arrowstask;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-process leaderboard service for exercising score sync without a network.
+ * Like a real leaderboard it keeps the best score of each daily, weekly and all-time window,
+ * counting every score for the windows current when it is submitted. While offline every submission fails.
+ * Callbacks are invoked on the submitting thread before {@link #submitScore(String, long, Callback)} returns.
+ */
+class FakeLeaderboardService implements LeaderboardService {
+    /**
+     * Windows of each leaderboard: index and best score of every window.
+     */
+    private final Map<String, long[]> leaderboards = new HashMap<String, long[]>();
+    /**
+     * Whether submissions succeed.
+     */
+    private boolean online = true;
+    /**
+     * Time of submissions in milliseconds since epoch or -1 to use the system clock.
+     */
+    private long time = -1;
+    /**
+     * Number of submissions, including failed ones.
+     */
+    private int submissions;
+
+    /**
+     * Sets whether submissions succeed.
+     *
+     * @param online False to fail all following submissions.
+     */
+    synchronized void setOnline(boolean online) {
+        this.online = online;
+    }
+
+    /**
+     * Sets the time following submissions are made at.
+     *
+     * @param time Time in milliseconds since epoch or -1 to use the system clock.
+     */
+    synchronized void setTime(long time) {
+        this.time = time;
+    }
+
+    /**
+     * Gets the number of submissions.
+     *
+     * @return Number of submissions, including failed ones.
+     */
+    synchronized int getSubmissions() {
+        return submissions;
+    }
+
+    /**
+     * Gets the best score of a window.
+     *
+     * @param leaderboardId The leaderboard.
+     * @param window        {@link ScoreWindows#DAILY}, {@link ScoreWindows#WEEKLY} or {@link ScoreWindows#ALL_TIME}.
+     * @return Best score submitted in the current window or {@link ScoreWindows#NONE}.
+     */
+    synchronized long getBest(String leaderboardId, int window) {
+        long[] windows = leaderboards.get(leaderboardId);
+        if (windows == null || windows[2 * window] != ScoreWindows.windowOf(window, now()))
+            return ScoreWindows.NONE;
+        return windows[2 * window + 1];
+    }
+
+    /**
+     * Gets the time of a submission.
+     *
+     * @return Time in milliseconds since epoch.
+     */
+    private long now() {
+        return time < 0 ? System.currentTimeMillis() : time;
+    }
+
+    @Override
+    public void submitScore(String leaderboardId, long score, Callback callback) {
+        boolean accepted;
+        synchronized (this) {
+            submissions++;
+            accepted = online;
+            if (accepted) {
+                long[] windows = leaderboards.get(leaderboardId);
+                if (windows == null) {
+                    // no window is current yet
+                    windows = new long[2 * ScoreWindows.WINDOW_COUNT];
+                    Arrays.fill(windows, Long.MIN_VALUE);
+                    leaderboards.put(leaderboardId, windows);
+                }
+                long now = now();
+                for (int window = 0; window < ScoreWindows.WINDOW_COUNT; window++) {
+                    long index = ScoreWindows.windowOf(window, now);
+                    if (windows[2 * window] != index || score > windows[2 * window + 1]) {
+                        windows[2 * window] = index;
+                        windows[2 * window + 1] = score;
+                    }
+                }
+            }
+        }
+        if (accepted)
+            callback.onSuccess();
+        else
+            callback.onFailure(new IOException("Leaderboard service is offline."));
+    }
+}
@@ -0,0 +1,57 @@
+package com.hrca.arrowstask;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Layout and hit-testing of {@link GridGeometry}.
+ */
+public class GridGeometryTest {
+    /**
+     * Width of a 360dp phone screen in pixels at 3x density.
+     */
+    private static final int WIDTH = 1080;
+    /**
+     * Spacing of 10dp at 3x density.
+     */
+    private static final int SPACING = 30;
+
+    @Test
+    public void keepsSpacingOfSmallGrids() {
+        GridGeometry geometry = new GridGeometry();
+        geometry.layout(4, SPACING, 0, 0, WIDTH, 1920);
+        assertEquals((WIDTH - 3 * SPACING) / 4, geometry.getCellSize());
+        assertEquals(geometry.getCellSize() + SPACING, geometry.getStep());
+        assertEquals((1920 - geometry.getExtent()) / 2, geometry.getTop());
+    }
+
+    @Test
+    public void capsSpacingOfLargeGrids() {
+        GridGeometry geometry = new GridGeometry();
+        geometry.layout(32, SPACING, 0, 0, WIDTH, 1920);
+        int spacing = geometry.getStep() - geometry.getCellSize();
+        assertTrue(spacing * GridGeometry.MIN_STEP_PER_SPACING <= geometry.getStep());
+        // a fixed spacing would leave 3 pixel cells
+        assertTrue(geometry.getCellSize() >= 28);
+        assertTrue(geometry.getExtent() <= WIDTH);
+    }
+
+    @Test
+    public void mapsCoordinatesToCells() {
+        GridGeometry geometry = new GridGeometry();
+        geometry.layout(4, SPACING, 10, 20, WIDTH, WIDTH);
+        for (int cell = 0; cell < 16; cell++) {
+            int left = geometry.getCellLeft(cell);
+            int top = geometry.getCellTop(cell);
+            int size = geometry.getCellSize();
+            assertEquals(cell, geometry.cellAt(left, top));
+            assertEquals(cell, geometry.cellAt(left + size - 1, top + size - 1));
+            // the spacing after a cell belongs to no cell
+            assertEquals(-1, geometry.cellAt(left + size, top));
+        }
+        assertEquals(-1, geometry.cellAt(geometry.getLeft() - 1, geometry.getTop()));
+        assertEquals(-1, geometry.cellAt(geometry.getLeft() + geometry.getExtent(), geometry.getTop()));
+    }
+}
@@ -0,0 +1,151 @@
+package com.hrca.arrowstask;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Ranks, percentiles and best scores of {@link LocalLeaderboard} and their persistence.
+ */
+public class LocalLeaderboardTest {
+    private static final double PERCENTILE_DELTA = 1e-9;
+
+    /**
+     * Leaderboard file, deleted after each test.
+     */
+    private File path;
+    /**
+     * Opened leaderboard.
+     */
+    private LocalLeaderboard leaderboard;
+
+    @Before
+    public void setUp() throws IOException {
+        path = File.createTempFile("scores", ".local");
+        assertTrue(path.delete());
+        leaderboard = new LocalLeaderboard(path);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        leaderboard.close();
+        assertTrue(path.delete());
+    }
+
+    @Test
+    public void emptyLeaderboard() {
+        assertEquals(0, leaderboard.getTotal());
+        assertEquals(0, leaderboard.getTopSize());
+        assertEquals(Integer.MIN_VALUE, leaderboard.getBest());
+        assertEquals(1, leaderboard.getRank(0));
+        assertEquals(100, leaderboard.getPercentile(0), PERCENTILE_DELTA);
+    }
+
+    @Test
+    public void ranksAndPercentiles() {
+        int[] scores = {10, 30, 20, 30, -5};
+        for (int i = 0; i < scores.length; i++) {
+            leaderboard.record(i, scores[i]);
+        }
+        assertEquals(5, leaderboard.getTotal());
+        assertEquals(30, leaderboard.getBest());
+        assertEquals(1, leaderboard.getRank(30));
+        assertEquals(3, leaderboard.getRank(20));
+        assertEquals(3, leaderboard.getRank(25));
+        assertEquals(4, leaderboard.getRank(10));
+        assertEquals(5, leaderboard.getRank(-5));
+        assertEquals(6, leaderboard.getRank(-6));
+        assertEquals(6, leaderboard.getRank(LocalLeaderboard.MIN_SCORE - 1));
+        assertEquals(100, leaderboard.getPercentile(30), PERCENTILE_DELTA);
+        assertEquals(60, leaderboard.getPercentile(20), PERCENTILE_DELTA);
+        assertEquals(20, leaderboard.getPercentile(-5), PERCENTILE_DELTA);
+        assertEquals(0, leaderboard.getPercentile(-6), PERCENTILE_DELTA);
+    }
+
+    @Test
+    public void keepsTopScoresInOrder() {
+        // ascending scores, each recorded twice, so every one displaces the lowest kept score
+        for (int score = 0; score < 40; score++) {
+            leaderboard.record(2 * score, score);
+            leaderboard.record(2 * score + 1, score);
+        }
+        assertEquals(LocalLeaderboard.TOP_COUNT, leaderboard.getTopSize());
+        for (int rank = 0; rank < LocalLeaderboard.TOP_COUNT; rank++) {
+            int score = 39 - rank / 2;
+            assertEquals(score, leaderboard.getTopScore(rank));
+            // the earlier of equal scores ranks first
+            assertEquals(2 * score + rank % 2, leaderboard.getTopTime(rank));
+        }
+        // a lower score does not enter the best scores
+        leaderboard.record(100, 0);
+        assertEquals(35, leaderboard.getTopScore(LocalLeaderboard.TOP_COUNT - 1));
+        assertEquals(81, leaderboard.getTotal());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsRankBeyondTopScores() {
+        leaderboard.record(0, 10);
+        leaderboard.getTopScore(1);
+    }
+
+    @Test
+    public void clampsScoresOutsideTrackedRange() {
+        int highest = LocalLeaderboard.MIN_SCORE + LocalLeaderboard.SCORE_COUNT - 1;
+        leaderboard.record(0, highest + 100);
+        leaderboard.record(1, LocalLeaderboard.MIN_SCORE - 100);
+        // the best scores keep the exact values
+        assertEquals(highest + 100, leaderboard.getBest());
+        assertEquals(1, leaderboard.getRank(highest));
+        assertEquals(2, leaderboard.getRank(LocalLeaderboard.MIN_SCORE));
+    }
+
+    @Test
+    public void reopensExistingFile() throws IOException {
+        for (int score = 0; score < 15; score++) {
+            leaderboard.record(score, score * 7 % 15);
+        }
+        leaderboard.close();
+        leaderboard = new LocalLeaderboard(path);
+        assertEquals(15, leaderboard.getTotal());
+        assertEquals(LocalLeaderboard.TOP_COUNT, leaderboard.getTopSize());
+        assertEquals(14, leaderboard.getBest());
+        assertEquals(5, leaderboard.getTopScore(9));
+        assertEquals(6, leaderboard.getRank(9));
+        // recording continues on the reopened file
+        leaderboard.record(15, 20);
+        assertEquals(20, leaderboard.getBest());
+        assertEquals(6, leaderboard.getTopScore(9));
+        assertEquals(16, leaderboard.getTotal());
+    }
+
+    @Test
+    public void reopensFileWithFewScores() throws IOException {
+        leaderboard.record(0, 3);
+        leaderboard.record(1, 8);
+        leaderboard.close();
+        leaderboard = new LocalLeaderboard(path);
+        assertEquals(2, leaderboard.getTopSize());
+        assertEquals(8, leaderboard.getTopScore(0));
+        assertEquals(3, leaderboard.getTopScore(1));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        File other = File.createTempFile("scores", ".other");
+        try {
+            RandomAccessFile file = new RandomAccessFile(other, "rw");
+            file.write(new byte[100]);
+            file.close();
+            new LocalLeaderboard(other);
+        } finally {
+            assertTrue(other.delete());
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.hrca.arrowstask;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Submission of compacted scores through {@link ScoreSubmitter} to a {@link FakeLeaderboardService}.
+ */
+public class ScoreSubmitterTest {
+    private static final String LEADERBOARD_ID = "leaderboard";
+    /**
+     * Longest time to wait for a retry in milliseconds.
+     */
+    private static final long RETRY_TIMEOUT = 5000;
+    /**
+     * Backoff in milliseconds which no test waits for.
+     */
+    private static final long RETRY_NEVER = 60 * 60 * 1000;
+
+    private final FakeLeaderboardService service = new FakeLeaderboardService();
+    private ScheduledExecutorService executor;
+    private File path;
+    private ScoreWindows windows;
+    private ScoreSubmitter submitter;
+
+    @Before
+    public void setUp() throws IOException {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        path = File.createTempFile("scores", ".windows");
+        assertTrue(path.delete());
+        open(1);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        windows.close();
+        assertTrue(path.delete());
+    }
+
+    /**
+     * Opens the score windows file and creates a submitter on it.
+     *
+     * @param initialBackoff Delay before the first retry in milliseconds.
+     * @throws IOException If the file cannot be opened.
+     */
+    private void open(long initialBackoff) throws IOException {
+        windows = new ScoreWindows(path);
+        submitter = new ScoreSubmitter(windows, executor, new Random(42), initialBackoff, initialBackoff);
+    }
+
+    /**
+     * Runs a task on the executor and waits for it and the callbacks it posted.
+     *
+     * @param task Task to run.
+     * @return Result of the task.
+     */
+    private <T> T run(Callable<T> task) throws Exception {
+        T result = executor.submit(task).get();
+        // callbacks of the fake service are posted before the task returns
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get();
+        return result;
+    }
+
+    /**
+     * Records a score now, the way sessions are queued.
+     *
+     * @param score The score.
+     */
+    private void record(int score) {
+        windows.record(System.currentTimeMillis(), score);
+    }
+
+    /**
+     * Starts a submission on the executor and waits for it.
+     */
+    private void submit() throws Exception {
+        run(new Callable<Void>() {
+            @Override
+            public Void call() {
+                submitter.submit(service, LEADERBOARD_ID);
+                return null;
+            }
+        });
+    }
+
+    @Test
+    public void submitsOnlyTheBestOfOfflineScores() throws Exception {
+        for (int score = 0; score < 5000; score++) {
+            record(score % 1000);
+        }
+        submit();
+        assertEquals(1, service.getSubmissions());
+        assertEquals(999, service.getBest(LEADERBOARD_ID, ScoreWindows.ALL_TIME));
+    }
+
+    @Test
+    public void doesNotSubmitTwice() throws Exception {
+        record(70);
+        submit();
+        submit();
+        assertEquals(1, service.getSubmissions());
+        record(50);
+        submit();
+        assertEquals(1, service.getSubmissions());
+    }
+
+    @Test
+    public void doesNotSubmitAgainAfterReopen() throws Exception {
+        record(70);
+        submit();
+        windows.close();
+        open(1);
+        submit();
+        assertEquals(1, service.getSubmissions());
+    }
+
+    @Test
+    public void submitsBetterScoreAfterSuccess() throws Exception {
+        record(50);
+        submit();
+        record(70);
+        submit();
+        assertEquals(2, service.getSubmissions());
+        assertEquals(70, service.getBest(LEADERBOARD_ID, ScoreWindows.ALL_TIME));
+    }
+
+    @Test
+    public void keepsScorePendingAfterFailure() throws Exception {
+        windows.close();
+        open(RETRY_NEVER);
+        service.setOnline(false);
+        record(70);
+        submit();
+        long now = System.currentTimeMillis();
+        assertEquals(70, windows.getPendingScore(now));
+        assertEquals(ScoreWindows.NONE, windows.getSynced(ScoreWindows.ALL_TIME, now));
+        int failures = run(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return submitter.getFailures();
+            }
+        });
+        assertEquals(1, failures);
+    }
+
+    @Test
+    public void submitReplacesScheduledRetry() throws Exception {
+        windows.close();
+        open(RETRY_NEVER);
+        service.setOnline(false);
+        record(70);
+        submit();
+        service.setOnline(true);
+        submit();
+        assertEquals(2, service.getSubmissions());
+        assertEquals(70, service.getBest(LEADERBOARD_ID, ScoreWindows.ALL_TIME));
+    }
+
+    @Test
+    public void retriesAfterFailure() throws Exception {
+        service.setOnline(false);
+        record(70);
+        run(new Callable<Void>() {
+            @Override
+            public Void call() {
+                submitter.submit(service, LEADERBOARD_ID);
+                // the failure is handled and the retry scheduled only after this task
+                assertEquals(1, service.getSubmissions());
+                service.setOnline(true);
+                return null;
+            }
+        });
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RETRY_TIMEOUT);
+        while (service.getBest(LEADERBOARD_ID, ScoreWindows.ALL_TIME) == ScoreWindows.NONE) {
+            assertTrue("Score was not retried.", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+        int failures = run(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return submitter.getFailures();
+            }
+        });
+        assertEquals(0, failures);
+        assertEquals(70, service.getBest(LEADERBOARD_ID, ScoreWindows.ALL_TIME));
+        // one failed submission and one retry, after which the leaderboard is up to date
+        assertEquals(2, service.getSubmissions());
+        submit();
+        assertEquals(2, service.getSubmissions());
+    }
+}
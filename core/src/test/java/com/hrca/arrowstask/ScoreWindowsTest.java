@@ -0,0 +1,169 @@
+package com.hrca.arrowstask;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Calendar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compaction, window resets and persistence of {@link ScoreWindows}.
+ */
+public class ScoreWindowsTest {
+    /**
+     * Score windows file, deleted after each test.
+     */
+    private File path;
+    /**
+     * Opened score windows.
+     */
+    private ScoreWindows windows;
+
+    @Before
+    public void setUp() throws IOException {
+        path = File.createTempFile("scores", ".windows");
+        assertTrue(path.delete());
+        windows = new ScoreWindows(path);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        windows.close();
+        assertTrue(path.delete());
+    }
+
+    /**
+     * Gets a time in the reset time zone.
+     *
+     * @param day    Day of October 2026, the 18th is a Sunday.
+     * @param hour   Hour of the day.
+     * @param minute Minute of the hour.
+     * @return Time in milliseconds since epoch.
+     */
+    private static long time(int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance(ScoreWindows.RESET_TIME_ZONE);
+        calendar.clear();
+        calendar.set(2026, Calendar.OCTOBER, day, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+
+    @Test
+    public void compactsScoresIntoTheBest() {
+        long now = time(14, 12, 0);
+        windows.record(now, 30);
+        windows.record(now, 70);
+        windows.record(now, 50);
+        assertEquals(70, windows.getPendingScore(now));
+    }
+
+    @Test
+    public void acknowledgedScoreIsNotPending() {
+        long now = time(14, 12, 0);
+        windows.record(now, 70);
+        windows.acknowledge(70, now);
+        assertEquals(ScoreWindows.NONE, windows.getPendingScore(now));
+        for (int window = 0; window < ScoreWindows.WINDOW_COUNT; window++) {
+            assertEquals(70, windows.getSynced(window, now));
+        }
+    }
+
+    @Test
+    public void scoreBelowAllCursorsIsDropped() {
+        long now = time(14, 12, 0);
+        windows.record(now, 70);
+        windows.acknowledge(70, now);
+        windows.record(now, 50);
+        assertEquals(ScoreWindows.NONE, windows.getPendingScore(now));
+        // a dropped score is not uploaded after the day ends either
+        assertEquals(ScoreWindows.NONE, windows.getPendingScore(time(15, 12, 0)));
+    }
+
+    @Test
+    public void scoreRecordedWhileSubmittingStaysPending() {
+        long now = time(14, 12, 0);
+        windows.record(now, 50);
+        assertEquals(50, windows.getPendingScore(now));
+        windows.record(now, 70);
+        windows.acknowledge(50, now);
+        assertEquals(70, windows.getPendingScore(now));
+    }
+
+    @Test
+    public void unsentScoreOfEndedDayIsPending() {
+        windows.record(time(13, 12, 0), 60);
+        windows.acknowledge(60, time(13, 12, 0));
+        // played offline below the all-time best, uploading it the next day still counts for that day
+        windows.record(time(14, 12, 0), 50);
+        long now = time(15, 12, 0);
+        assertEquals(50, windows.getPendingScore(now));
+        windows.acknowledge(50, now);
+        assertEquals(50, windows.getSynced(ScoreWindows.DAILY, now));
+        assertEquals(60, windows.getSynced(ScoreWindows.WEEKLY, now));
+        assertEquals(60, windows.getSynced(ScoreWindows.ALL_TIME, now));
+        assertEquals(ScoreWindows.NONE, windows.getPendingScore(now));
+    }
+
+    @Test
+    public void dayEndsAtMidnightPacificTime() {
+        windows.acknowledge(60, time(14, 23, 59));
+        assertEquals(60, windows.getSynced(ScoreWindows.DAILY, time(14, 23, 59)));
+        assertEquals(ScoreWindows.NONE, windows.getSynced(ScoreWindows.DAILY, time(15, 0, 0)));
+        assertEquals(60, windows.getSynced(ScoreWindows.WEEKLY, time(15, 0, 0)));
+        assertEquals(60, windows.getSynced(ScoreWindows.ALL_TIME, time(15, 0, 0)));
+    }
+
+    @Test
+    public void weekStartsOnSunday() {
+        assertEquals(ScoreWindows.windowOf(ScoreWindows.WEEKLY, time(11, 0, 0)),
+                ScoreWindows.windowOf(ScoreWindows.WEEKLY, time(17, 23, 59)));
+        assertEquals(ScoreWindows.windowOf(ScoreWindows.WEEKLY, time(17, 23, 59)) + 1,
+                ScoreWindows.windowOf(ScoreWindows.WEEKLY, time(18, 0, 0)));
+        windows.acknowledge(60, time(17, 12, 0));
+        assertEquals(ScoreWindows.NONE, windows.getSynced(ScoreWindows.WEEKLY, time(18, 0, 0)));
+        assertEquals(60, windows.getSynced(ScoreWindows.ALL_TIME, time(18, 0, 0)));
+    }
+
+    @Test
+    public void dayFollowsDaylightSavingTime() {
+        // daylight saving time ends on November 1, 2026, that day has 25 hours
+        long first = ScoreWindows.windowOf(ScoreWindows.DAILY, time(31, 23, 59));
+        Calendar calendar = Calendar.getInstance(ScoreWindows.RESET_TIME_ZONE);
+        calendar.clear();
+        calendar.set(2026, Calendar.NOVEMBER, 1, 23, 59);
+        assertEquals(first + 1, ScoreWindows.windowOf(ScoreWindows.DAILY, calendar.getTimeInMillis()));
+        calendar.set(2026, Calendar.NOVEMBER, 2, 0, 0);
+        assertEquals(first + 2, ScoreWindows.windowOf(ScoreWindows.DAILY, calendar.getTimeInMillis()));
+    }
+
+    @Test
+    public void cursorsAndUnsentScorePersistAcrossReopen() throws IOException {
+        long now = time(14, 12, 0);
+        windows.record(now, 60);
+        windows.acknowledge(60, now);
+        windows.record(now, 80);
+        windows.close();
+        windows = new ScoreWindows(path);
+        assertEquals(60, windows.getSynced(ScoreWindows.DAILY, now));
+        assertEquals(60, windows.getSynced(ScoreWindows.ALL_TIME, now));
+        assertEquals(80, windows.getPendingScore(now));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        File other = File.createTempFile("scores", ".other");
+        try {
+            RandomAccessFile file = new RandomAccessFile(other, "rw");
+            file.write(new byte[100]);
+            file.close();
+            new ScoreWindows(other);
+        } finally {
+            assertTrue(other.delete());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.hrca.arrowstask;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Encoding of {@link SessionLog} records and their round trip through a byte array.
+ */
+public class SessionLogTest {
+    /**
+     * Seeds including negative ones and the extremes of zigzag encoding.
+     */
+    private static final long[] SEEDS = {0, 1, -1, 63, -64, 64, -65, Long.MAX_VALUE, Long.MIN_VALUE};
+    /**
+     * Tapped cells around the boundaries of one, two and three byte codes.
+     */
+    private static final int[] CELLS = {0, 31, 32, 4095, 4096, 1023 * 1023};
+    /**
+     * Times between taps around the boundaries of varint lengths.
+     */
+    private static final long[] DELTAS = {0, 127, 128, 16383, 16384, 2097151, 2097152, Integer.MAX_VALUE};
+
+    @Test
+    public void roundTripKeepsRecords() {
+        SessionLog log = new SessionLog();
+        long time = 0;
+        for (long seed : SEEDS) {
+            log.beginSequence(1023, seed, seed < 0 ? BoardSequence.FULL_REGENERATION : 3);
+            for (int cell : CELLS) {
+                for (long delta : DELTAS) {
+                    time += delta;
+                    log.recordTap(cell, (cell & 1) == 0, time);
+                }
+            }
+        }
+
+        SessionLog restored = SessionLog.fromByteArray(log.toByteArray());
+        assertEquals(log.getTapCount(), restored.getTapCount());
+        assertEquals(log.getLength(), restored.getLength());
+        SessionLog.Reader reader = restored.reader();
+        boolean first = true;
+        for (long seed : SEEDS) {
+            assertTrue(reader.next());
+            assertFalse(reader.isTap());
+            assertEquals(1023, reader.getSize());
+            assertEquals(seed, reader.getSeed());
+            assertEquals(seed < 0 ? BoardSequence.FULL_REGENERATION : 3, reader.getChanges());
+            for (int cell : CELLS) {
+                for (long delta : DELTAS) {
+                    assertTrue(reader.next());
+                    assertTrue(reader.isTap());
+                    assertEquals(cell, reader.getCell());
+                    assertEquals((cell & 1) == 0, reader.isHit());
+                    // the first tap has no previous one
+                    assertEquals(first ? 0 : delta, reader.getDelta());
+                    first = false;
+                }
+            }
+        }
+        assertFalse(reader.next());
+    }
+
+    @Test
+    public void varintsGrowAtSevenBitBoundaries() {
+        SessionLog log = new SessionLog();
+        // code 31 << 2 and delta 0 fit a byte each
+        log.recordTap(31, false, 0);
+        assertEquals(2, log.getLength());
+        // code 32 << 2 takes two bytes, delta 127 one
+        log.recordTap(32, false, 127);
+        assertEquals(5, log.getLength());
+        // delta 128 takes two bytes
+        log.recordTap(0, false, 255);
+        assertEquals(8, log.getLength());
+    }
+
+    @Test
+    public void timeGoingBackwardsIsZeroDelta() {
+        SessionLog log = new SessionLog();
+        log.recordTap(0, true, 1000);
+        log.recordTap(0, true, 500);
+        SessionLog.Reader reader = log.reader();
+        assertTrue(reader.next());
+        assertTrue(reader.next());
+        assertEquals(0, reader.getDelta());
+    }
+
+    @Test
+    public void growsPastInitialCapacity() {
+        SessionLog log = new SessionLog(16);
+        for (int tap = 0; tap < 10000; tap++) {
+            log.recordTap(tap, true, tap * 100L);
+        }
+        assertEquals(10000, SessionLog.fromByteArray(log.toByteArray()).getTapCount());
+    }
+
+    @Test
+    public void clearRemovesRecords() {
+        SessionLog log = new SessionLog();
+        log.beginSequence(4, -5, 0);
+        log.recordTap(3, true, 100);
+        log.clear();
+        assertEquals(0, log.getLength());
+        assertEquals(0, log.getTapCount());
+        assertFalse(log.reader().next());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTruncatedLog() {
+        SessionLog log = new SessionLog();
+        log.beginSequence(4, Long.MIN_VALUE, 0);
+        byte[] data = log.toByteArray();
+        byte[] truncated = new byte[data.length - 1];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        SessionLog.fromByteArray(truncated);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownRecord() {
+        SessionLog.fromByteArray(new byte[]{3, 0});
+    }
+}
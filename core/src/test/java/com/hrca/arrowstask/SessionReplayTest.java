@@ -0,0 +1,107 @@
+package com.hrca.arrowstask;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Headless replay of logged sessions by {@link SessionReplay}.
+ */
+public class SessionReplayTest {
+    private static final int SIZE = 4;
+    private static final long SEED = -7;
+    private static final int CHANGES = 2;
+
+    /**
+     * Logs a session alternating a hit and a miss on boards of the logged sequence.
+     *
+     * @param log   Log to record into.
+     * @param taps  Number of taps.
+     * @param start Time of the first tap in milliseconds.
+     * @return Score of the session.
+     */
+    private static TaskScore playSession(SessionLog log, int taps, long start) {
+        BoardSequence sequence = new BoardSequence(SIZE, SEED, CHANGES);
+        ArrowBoard board = new ArrowBoard(SIZE);
+        sequence.next(board);
+        log.beginSequence(SIZE, SEED, CHANGES);
+        TaskScore score = new TaskScore();
+        for (int tap = 0; tap < taps; tap++) {
+            long time = start + tap * 150L;
+            if (tap % 2 == 0) {
+                log.recordTap(board.getTarget(), true, time);
+                score.add(1, 0);
+                sequence.next(board);
+            } else {
+                log.recordTap((board.getTarget() + 1) % board.getCellCount(), false, time);
+                score.add(0, 1);
+            }
+        }
+        return score;
+    }
+
+    @Test
+    public void recomputesScoreOfUnmodifiedSession() {
+        SessionLog log = new SessionLog();
+        TaskScore played = playSession(log, 101, 5000);
+        SessionReplay replay = new SessionReplay(SessionLog.fromByteArray(log.toByteArray()));
+        TaskScore replayed = replay.run(null);
+        assertEquals(played.getHits(), replayed.getHits());
+        assertEquals(played.getMisses(), replayed.getMisses());
+        assertEquals(0, replay.getMismatches());
+        assertEquals(150, replay.getShortestInterval());
+        assertEquals(100 * 150, replay.getDuration());
+    }
+
+    @Test
+    public void detectsTapsDisagreeingWithBoards() {
+        SessionLog log = new SessionLog();
+        playSession(log, 10, 0);
+        // claims a hit on a cell which is not the target of the current board
+        BoardSequence sequence = new BoardSequence(SIZE, SEED, CHANGES);
+        ArrowBoard board = new ArrowBoard(SIZE);
+        for (int hit = 0; hit <= 5; hit++) {
+            sequence.next(board);
+        }
+        log.recordTap((board.getTarget() + 1) % board.getCellCount(), true, 10000);
+
+        SessionReplay replay = new SessionReplay(log);
+        TaskScore replayed = replay.run(null);
+        assertEquals(1, replay.getMismatches());
+        // the score is recomputed, the forged hit counts as a miss
+        assertEquals(5, replayed.getHits());
+        assertEquals(6, replayed.getMisses());
+    }
+
+    @Test
+    public void passesRegeneratedBoardsToListener() {
+        SessionLog log = new SessionLog();
+        playSession(log, 20, 0);
+        final int[] taps = new int[1];
+        new SessionReplay(log).run(new SessionReplay.Listener() {
+            @Override
+            public void onTap(ArrowBoard board, int cell, boolean hit, long time) {
+                assertEquals(taps[0] % 2 == 0, hit);
+                assertEquals(hit, board.isTarget(cell));
+                assertEquals(taps[0] * 150L, time);
+                taps[0]++;
+            }
+        });
+        assertEquals(20, taps[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTapBeforeSequence() {
+        SessionLog log = new SessionLog();
+        log.recordTap(0, true, 0);
+        new SessionReplay(log).run(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsCellOutsideBoard() {
+        SessionLog log = new SessionLog();
+        log.beginSequence(SIZE, SEED, CHANGES);
+        log.recordTap(SIZE * SIZE, false, 0);
+        new SessionReplay(log).run(null);
+    }
+}
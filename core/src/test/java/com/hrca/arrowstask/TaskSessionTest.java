@@ -0,0 +1,106 @@
+package com.hrca.arrowstask;
+
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Countdown and deadline of a {@link TaskSession}, shared by the app and the {@link TaskSimulator}.
+ */
+public class TaskSessionTest {
+    /**
+     * Duration of the tested sessions in nanoseconds.
+     */
+    private static final long DURATION = 1000000000L;
+
+    @Test
+    public void firstClickStartsTheCountdown() {
+        TaskSession session = new TaskSession(DURATION, DURATION, new TaskScore());
+        assertEquals(DURATION, session.getRemaining(5000));
+        assertTrue(session.addClicks(1, 0, 1000));
+        assertTrue(session.isRunning());
+        assertEquals(DURATION - 500, session.getRemaining(1500));
+    }
+
+    @Test
+    public void clickBeforeDeadlineCounts() {
+        TaskSession session = new TaskSession(DURATION, DURATION, new TaskScore());
+        assertTrue(session.addClicks(1, 0, 0));
+        assertTrue(session.addClicks(2, 1, DURATION - 1));
+        assertFalse(session.isFinished());
+        assertEquals(2, session.getResult());
+    }
+
+    @Test
+    public void clickAfterDeadlineIsIgnored() {
+        TaskSession session = new TaskSession(DURATION, DURATION, new TaskScore());
+        assertTrue(session.addClicks(1, 0, 0));
+        // delivered before any frame checked the deadline
+        assertFalse(session.addClicks(1, 0, DURATION + 1));
+        assertTrue(session.isFinished());
+        assertEquals(1, session.getResult());
+    }
+
+    @Test
+    public void clickAtDeadlineIsIgnored() {
+        TaskSession session = new TaskSession(DURATION, DURATION, new TaskScore());
+        assertTrue(session.addClicks(1, 0, 0));
+        assertFalse(session.addClicks(0, 1, DURATION));
+        assertTrue(session.isFinished());
+        assertEquals(1, session.getResult());
+    }
+
+    @Test
+    public void pausedTimeDoesNotCount() {
+        TaskSession session = new TaskSession(DURATION, DURATION, new TaskScore());
+        assertTrue(session.addClicks(1, 0, 0));
+        session.pause(DURATION / 2);
+        session.resume(10 * DURATION);
+        assertTrue(session.addClicks(1, 0, 10 * DURATION + DURATION / 2 - 1));
+        assertFalse(session.addClicks(1, 0, 10 * DURATION + DURATION / 2));
+        assertEquals(2, session.getResult());
+    }
+
+    @Test
+    public void tapAtDeadlineIsIgnored() {
+        TaskSession session = new TaskSession(new BoardSequence(4, 42), DURATION);
+        SessionLog log = new SessionLog();
+        session.setLog(log);
+        int target = session.getBoard().getTarget();
+        assertTrue(session.tap(target, 0));
+        target = session.getBoard().getTarget();
+        assertTrue(session.tap(target, DURATION - 1));
+        target = session.getBoard().getTarget();
+        // neither counted nor logged and the board stays
+        assertFalse(session.tap(target, DURATION));
+        assertTrue(session.isFinished());
+        assertEquals(target, session.getBoard().getTarget());
+        assertEquals(2, log.getTapCount());
+        assertEquals(2, session.getResult());
+    }
+
+    @Test
+    public void tapAfterDeadlineIsIgnored() {
+        TaskSession session = new TaskSession(new BoardSequence(4, 42), DURATION);
+        assertTrue(session.tap(session.getBoard().getTarget(), 0));
+        assertFalse(session.tap(session.getBoard().getTarget(), DURATION + 1));
+        assertEquals(1, session.getResult());
+    }
+
+    @Test
+    public void simulatorStopsAtDeadline() {
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            TaskSimulator simulator = new TaskSimulator(pool, 4, BoardSequence.FULL_REGENERATION, DURATION);
+            // taps every tenth of the duration, the eleventh would land exactly on the deadline
+            assertEquals(10, simulator.simulate(new TaskSimulator.Player(DURATION / 10, 0, 1), 42));
+            assertEquals(-10, simulator.simulate(new TaskSimulator.Player(DURATION / 10, 0, 0), 42));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}